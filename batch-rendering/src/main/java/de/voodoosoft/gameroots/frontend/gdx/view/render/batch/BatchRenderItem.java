@@ -1,6 +1,7 @@
 package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
 
 
 
@@ -15,6 +16,92 @@ public interface BatchRenderItem extends Comparable<BatchRenderItem> {
 	 */
 	int getLayer();
 
+	/**
+	 * Returns the depth of this item within its layer, items with lower depth are drawn first.
+	 * <p/>
+	 * Depth takes precedence over blend mode, shader and texture, see {@link BatchRenderQueue#setDepthRange}.
+	 *
+	 * @return depth, 0 by default
+	 */
+	default float getDepth() {
+		return 0;
+	}
+
+	/**
+	 * Returns true if this item is drawn after stage lighting was applied.
+	 * <br/>Only effective for render queues with a lighting pass, see {@link BatchRenderQueue#setLightingPass}.
+	 *
+	 * @return false by default
+	 */
+	default boolean isPostLighting() {
+		return false;
+	}
+
+	/**
+	 * Returns the handle of the texture this item draws with.
+	 * <p/>
+	 * Items of different classes sharing a texture, e.g. regions of the same atlas page, are grouped by sorting,
+	 * which saves sprite batch flushes.
+	 *
+	 * @return texture handle or 0 if unknown
+	 */
+	default int getTextureHandle() {
+		return 0;
+	}
+
+	/**
+	 * Returns the packed sort key of this item without layer and depth.
+	 * <p/>
+	 * Only used by render queues sorting by keys instead of <code>compareTo</code>.
+	 *
+	 * @see SortKey
+	 * @see SortMode
+	 *
+	 * @return sort key
+	 */
+	default long getSortKey() {
+		return 0;
+	}
+
+	/**
+	 * Returns the type id assigned by the render queue when this item was obtained.
+	 *
+	 * @return type id or -1 if this item does not store its type id
+	 */
+	default int getTypeId() {
+		return -1;
+	}
+
+	/**
+	 * Stores the type id assigned by the render queue.
+	 * <br/>Items not storing their type id are freed by looking up their class, which is considerably slower.
+	 *
+	 * @param typeId type id of the item class
+	 */
+	default void setTypeId(int typeId) {
+	}
+
+	/**
+	 * Returns the axis aligned bounds of this item in world coordinates, used for culling.
+	 *
+	 * @param bounds receives the bounds
+	 * @return false if the bounds are unknown, such items are never culled
+	 */
+	default boolean getBounds(Rectangle bounds) {
+		return false;
+	}
+
+	/**
+	 * Adds the geometry of this item to the cache of a cached layer.
+	 * <br/>Implementations must call <code>cache.setState</code> before adding any geometry to the sprite cache.
+	 *
+	 * @param cache layer cache being recorded
+	 * @return false if this item does not support caching, its layer is then rendered without cache
+	 */
+	default boolean cache(LayerCache cache) {
+		return false;
+	}
+
 	/**
 	 * Draws this batch item.
 	 *
@@ -22,4 +109,19 @@ public interface BatchRenderItem extends Comparable<BatchRenderItem> {
 	 * @param time current time in ns
 	 */
 	void render(SpriteBatch batch, long time);
+
+	/**
+	 * Draws this batch item using the state tracker of the render queue.
+	 * <p/>
+	 * The default implementation draws directly to the sprite batch and afterwards invalidates all tracked states,
+	 * as it cannot know which of them were changed.
+	 * Items should override this method and change states through the tracker only.
+	 *
+	 * @param state render state tracker bound to the sprite batch
+	 * @param time current time in ns
+	 */
+	default void render(BatchRenderState state, long time) {
+		render(state.getBatch(), time);
+		state.invalidate();
+	}
 }
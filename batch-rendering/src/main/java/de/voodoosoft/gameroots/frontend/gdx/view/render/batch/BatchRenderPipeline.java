@@ -0,0 +1,196 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+
+/**
+ * Double or triple buffered render queues for filling and rendering frames on different threads.
+ * <p/>
+ * The game thread fills frame N+1 while the render thread draws frame N:
+ * <br/>1. game thread: <code>beginFrame()</code> returns an empty render queue
+ * <br/>2. game thread: <code>obtainItem()</code> and <code>queueItem()</code> on that queue
+ * <br/>3. game thread: <code>endFrame()</code> publishes the queue to the render thread
+ * <br/>4. render thread: <code>render()</code> draws the most recently published queue
+ * <p/>
+ * A published queue is never touched by the game thread until the render thread has moved on to a newer one.
+ * Rendered queues are handed back and reset by the game thread in <code>beginFrame</code>,
+ * so items are only ever obtained from and freed to their pools on the game thread and pools need no synchronization.
+ * <br/>If no new frame was published, <code>render</code> draws the last frame again.
+ * <p/>
+ * Queued items must not reference objects the game thread keeps modifying, e.g. shared colors,
+ * since the render thread may read them at any time until the frame is handed back.
+ * <br/>Items advancing simulations while drawing, like particle items, advance only once per frame, not again when a frame is drawn repeatedly.
+ * <p/>
+ * Render statistics of the queues are written by the render thread.
+ * The game thread reads them through <code>getStats</code>, which is filled from each frame handed back.
+ */
+public class BatchRenderPipeline {
+	/**
+	 * Creates a new pipeline.
+	 *
+	 * @param bufferCount number of render queues, 2 for double and 3 for triple buffering
+	 * @param maxLayers maximal number of layers of each render queue
+	 */
+	public BatchRenderPipeline(int bufferCount, int maxLayers) {
+		if (bufferCount < 2) {
+			throw new IllegalArgumentException("buffer count must be >= 2");
+		}
+
+		this.maxLayers = maxLayers;
+		queues = new BatchRenderQueue[bufferCount];
+		freeQueues = new ArrayBlockingQueue<BatchRenderQueue>(bufferCount);
+		publishedQueues = new ArrayBlockingQueue<BatchRenderQueue>(bufferCount);
+		for (int i = 0; i < bufferCount; i++) {
+			queues[i] = new BatchRenderQueue(maxLayers);
+			freeQueues.add(queues[i]);
+		}
+	}
+
+	/**
+	 * Registers the specified batch item type with all render queues.
+	 * <br/>All queues share the same pool, which is only accessed by the game thread.
+	 *
+	 * @param itemClass batch item type
+	 * @param pool the pool supplying batch items
+	 * @return type id of the item class, identical for all queues
+	 */
+	public int addItemClass(Class<? extends BatchRenderItem> itemClass, Pool<BatchRenderItem> pool) {
+		int typeId = -1;
+		for (BatchRenderQueue queue : queues) {
+			typeId = queue.addItemClass(itemClass, pool);
+		}
+		return typeId;
+	}
+
+	/**
+	 * Sets the sort mode of all render queues.
+	 * <br/>Must only be called before the first frame.
+	 *
+	 * @param sortMode sort mode
+	 */
+	public void setSortMode(SortMode sortMode) {
+		for (BatchRenderQueue queue : queues) {
+			queue.setSortMode(sortMode);
+		}
+	}
+
+	/**
+	 * Enables or disables collecting render statistics for all render queues.
+	 * <br/>Must only be called before the first frame.
+	 *
+	 * @param enabled true to collect statistics
+	 * @param windowSize number of frames to average rolling statistics over
+	 */
+	public void setStatsEnabled(boolean enabled, int windowSize) {
+		for (BatchRenderQueue queue : queues) {
+			queue.setStatsEnabled(enabled, windowSize);
+		}
+		stats = enabled ? new BatchRenderStats(maxLayers, windowSize) : null;
+	}
+
+	/**
+	 * Returns the render statistics of the last frame handed back by the render thread.
+	 * <p/>
+	 * Must be called by the game thread. Statistics are taken over in <code>beginFrame</code>,
+	 * after the render thread has handed back the queue, so they never change while being read.
+	 * Per frame values include all draws of the frame, e.g. when it was drawn repeatedly.
+	 *
+	 * @return statistics or null if disabled
+	 */
+	public BatchRenderStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Returns all render queues, e.g. for attaching sprite streams.
+	 * <br/>The statistics of single queues must not be read while the pipeline is running, use <code>getStats</code> instead.
+	 * <br/>Must only be used for configuration before the first frame.
+	 *
+	 * @return
+	 */
+	public BatchRenderQueue[] getQueues() {
+		return queues;
+	}
+
+	/**
+	 * Returns an empty render queue for filling the next frame.
+	 * <p/>
+	 * Must be called by the game thread. Blocks until the render thread has handed back a queue.
+	 *
+	 * @return render queue owned by the game thread until <code>endFrame</code>
+	 */
+	public BatchRenderQueue beginFrame() {
+		if (fillQueue != null) {
+			throw new IllegalStateException("frame already begun");
+		}
+
+		BatchRenderQueue queue;
+		try {
+			queue = freeQueues.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted while waiting for a free render queue", e);
+		}
+		queue.reset();
+		// the first frames get queues never filled before
+		if (stats != null && queue.getStats() != null && framesBegun >= queues.length) {
+			stats.addFrame(queue.getStats());
+		}
+		framesBegun++;
+		fillQueue = queue;
+		return queue;
+	}
+
+	/**
+	 * Publishes the queue returned by <code>beginFrame</code> to the render thread.
+	 * <br/>Must be called by the game thread.
+	 */
+	public void endFrame() {
+		if (fillQueue == null) {
+			throw new IllegalStateException("no frame begun");
+		}
+		publishedQueues.add(fillQueue);
+		fillQueue = null;
+	}
+
+	/**
+	 * Draws the most recently published frame.
+	 * <p/>
+	 * Must be called by the render thread. Frames published in the meantime but already outdated are skipped.
+	 * The sprite batch must have been opened before and closed afterwards.
+	 *
+	 * @param batch sprite batch used for drawing
+	 * @param time current time in ns
+	 * @return false if no frame has been published yet
+	 */
+	public boolean render(SpriteBatch batch, long time) {
+		BatchRenderQueue published;
+		while ((published = publishedQueues.poll()) != null) {
+			if (renderQueue != null) {
+				freeQueues.add(renderQueue);
+			}
+			renderQueue = published;
+		}
+
+		if (renderQueue == null) {
+			return false;
+		}
+		renderQueue.render(batch, time);
+		return true;
+	}
+
+	private final int maxLayers;
+	private final BatchRenderQueue[] queues;
+	private final BlockingQueue<BatchRenderQueue> freeQueues;
+	private final BlockingQueue<BatchRenderQueue> publishedQueues;
+	private BatchRenderQueue fillQueue;
+	private BatchRenderQueue renderQueue;
+	private BatchRenderStats stats;
+	private long framesBegun;
+}
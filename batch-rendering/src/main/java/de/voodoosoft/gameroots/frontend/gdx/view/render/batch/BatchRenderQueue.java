@@ -1,13 +1,24 @@
 package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Frustum;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.Sort;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 
@@ -17,18 +28,41 @@ import java.util.List;
  * Before each render cycle, all batch items to be drawn must be added by calling <code>queueItem</code>
  * and freed again by invoking <code>reset</code>.
  * <br/>While rendering, items are first sorted by item layer, then for each layer by individual item sort orders.
+ * <br/>Within a layer, items are either sorted by <code>compareTo</code> or by packed sort keys, see {@link SortMode}.
+ * <br/>Optionally, items are ordered by depth within their layers before render state, see <code>setDepthRange</code>.
  * <br/>Batch items are held in object pools. Each item type must have been registered once by calling <code>addItemClass</code>.
+ * <br/>Registration assigns a dense type id to each item class, which allows obtaining and freeing items without any map lookups.
+ * <br/>Layers are allocated when their first item is queued. Rendering and resetting only visit layers holding items,
+ * so large layer counts cost nothing as long as they are unused.
+ * <br/>Each queue owns its own sorters, so different queues may be rendered by different threads.
+ * A single queue must not be used by multiple threads at the same time, see {@link BatchRenderPipeline} for handing queues between threads
+ * and {@link BatchRenderSubmitter} for submitting items from multiple worker threads.
+ * <br/>Items change the sprite batch state through a state tracker owned by this queue, which filters redundant state changes.
+ * <br/>Shape items switch from the sprite batch to their shape renderer through the same tracker. Switching back only happens
+ * when the next sprite is drawn, and shapes are sorted behind the sprites of their layer and depth, grouped by shape type.
  * <p/>
  * Typical method call order for one render cycle:
  * <br/>1. <code>obtainItem()</code>
  * <br/>2. <code>queueItem()</code>
  * <br/>3. <code>render()</code>
  * <br/>4. <code>reset()</code>
+ * <p/>
+ * Optionally, <code>prepare()</code> sorts all layers in parallel before <code>render()</code>.
+ * <p/>
+ * Items not changing between frames may be added once with <code>addRetainedItem</code> instead of being queued each frame.
+ * Retained items stay sorted across frames and are merged with the queued items of their layer while rendering.
+ * <p/>
+ * Layers with static content may be cached by <code>setLayerCached</code>, see {@link LayerCache}.
+ * Ranges of layers changing rarely may be drawn into offscreen frame buffers by <code>addLayerTarget</code>, see {@link LayerTarget}.
+ * Queues using layer caches or layer targets must be disposed.
+ * <p/>
+ * With a lighting pass, post lighting items are kept apart while queueing and drawn after all other items
+ * and the lighting composite, see <code>setLightingPass</code>.
  */
-public class BatchRenderQueue {
+public class BatchRenderQueue implements Disposable {
 	/**
 	 * Creates a new render queue with the given number of maximal layers.
-	 * @param maxLayers
+	 * @param maxLayers maximal number of layers, see {@link #BatchRenderQueue(int, int)}
 	 */
 	public BatchRenderQueue(int maxLayers) {
 		this(1024, maxLayers);
@@ -36,8 +70,12 @@ public class BatchRenderQueue {
 
 	/**
 	 * Creates a new render queue with the given starting and maximal layer numbers.
+	 * <p/>
+	 * Sorting by keys, sprite streams and render captures hold the layer in {@link SortKey#LAYER_BITS} bits,
+	 * so they require at most {@link SortKey#MAX_LAYERS} layers. Sorting by <code>compareTo</code> supports any number of layers.
+	 *
 	 * @param initialCapacity
-	 * @param maxLayers
+	 * @param maxLayers maximal number of layers
 	 */
 	public BatchRenderQueue(int initialCapacity, int maxLayers) {
 		if (initialCapacity == 0) {
@@ -45,25 +83,230 @@ public class BatchRenderQueue {
 		}
 
 		this.maxLayers = maxLayers;
-		itemCount = new int[maxLayers];
+		this.initialCapacity = initialCapacity;
+		layers = new RenderLayer[maxLayers];
+		activeLayers = new long[(maxLayers + 63) >> 6];
+		renderLayers = new long[activeLayers.length];
+		retainedLayers = new RetainedLayer[maxLayers];
+		retainedActiveLayers = new long[activeLayers.length];
+		dirtyLayers = new long[activeLayers.length];
+		layerCaches = new LayerCache[maxLayers];
+		postLayers = new RenderLayer[maxLayers];
+		targetLayers = new LayerTarget[maxLayers];
+		layerTargets = new Array<LayerTarget>(false, 4);
+		targetProjection = new Matrix4();
+		postActiveLayers = new long[activeLayers.length];
+		cachedLayers = new long[activeLayers.length];
+		recordedLayers = new long[activeLayers.length];
+		recordedPostLayers = new long[activeLayers.length];
+		cacheItems = new BatchRenderItem[0];
+		retainedItems = new BatchRenderItem[0];
+		retainedItemLayers = new int[0];
+		retainedDirty = new boolean[0];
+		dirtyHandles = new int[0];
+		freeHandles = new int[0];
+		shrinkFrames = 300;
+		shrinkRatio = 0.25f;
 
-		itemLayers = new ArrayList<BatchRenderItem[]>();
-		for (int i = 0; i < maxLayers; i++) {
-			BatchRenderItem[] batchItems = new BatchRenderItem[initialCapacity];
-			itemLayers.add(batchItems);
+		itemTypes = new ObjectIntMap<Class>();
+		typeClasses = new Class[0];
+		typePools = new Pool[0];
+		spriteStreams = new SpriteStream[0];
+		submitters = new BatchRenderSubmitter[0];
+		sortMode = SortMode.COMPARATOR;
+		frameId = FRAME_IDS.incrementAndGet();
+		sorter = new LayerSorter();
+		freeSorters = new Array<LayerSorter>(false, 8);
+		prepareTasks = new ArrayList<ForkJoinTask<?>>();
+		parallelSortThreshold = 16384;
+		renderState = new BatchRenderState();
+		cullRectangle = new Rectangle();
+		itemBounds = new Rectangle();
+	}
+
+	/**
+	 * Specifies when layer arrays grown by a spike of items are shrunk again.
+	 * <p/>
+	 * Every <code>frames</code> resets, the highest item count of each layer during that period is checked.
+	 * Layers staying below <code>ratio</code> of their capacity are shrunk to twice their high water mark,
+	 * but not below the initial capacity. Layers not used at all are released.
+	 *
+	 * @param frames number of resets between checks, 0 to never shrink layers; 300 by default
+	 * @param ratio fill ratio below which layers are shrunk; 0.25 by default
+	 */
+	public void setShrinkPolicy(int frames, float ratio) {
+		this.shrinkFrames = frames;
+		this.shrinkRatio = ratio;
+	}
+
+	/**
+	 * Returns the current item capacity of the given layer.
+	 *
+	 * @param layer
+	 * @return capacity, 0 if the layer is not allocated
+	 */
+	public int getLayerCapacity(int layer) {
+		RenderLayer renderLayer = layers[layer];
+		return renderLayer != null ? renderLayer.getCapacity() : 0;
+	}
+
+	/**
+	 * Specifies how items are sorted within each layer.
+	 * <p/>
+	 * Must only be changed while the queue is empty.
+	 *
+	 * @param sortMode sort mode, <code>COMPARATOR</code> by default, others require at most {@link SortKey#MAX_LAYERS} layers
+	 */
+	public void setSortMode(SortMode sortMode) {
+		if (sortMode != SortMode.COMPARATOR) {
+			checkKeyLayers("sort mode " + sortMode);
 		}
+		this.sortMode = sortMode;
+	}
+
+	public SortMode getSortMode() {
+		return sortMode;
+	}
 
-		itemPools = new ObjectMap<Class, Pool<BatchRenderItem>>();
+	/**
+	 * Returns the sorter used in <code>ADAPTIVE</code> sort mode.
+	 * <br/>Provides counters about how often the coherent and the full sort path were taken.
+	 *
+	 * @return
+	 */
+	public CoherentSort getCoherentSort() {
+		return sorter.coherentSort;
+	}
+
+	/**
+	 * Sets the fork join pool used by <code>prepare</code>.
+	 *
+	 * @param forkJoinPool pool or null for the common pool
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Specifies from which size on a single layer is sorted by a parallel merge sort in <code>prepare</code>.
+	 * <br/>Does not apply to <code>ADAPTIVE</code> sort mode, which sorts each layer in a single pass.
+	 *
+	 * @param parallelSortThreshold number of items, 16384 by default
+	 */
+	public void setParallelSortThreshold(int parallelSortThreshold) {
+		this.parallelSortThreshold = parallelSortThreshold;
+	}
+
+	public int getParallelSortThreshold() {
+		return parallelSortThreshold;
+	}
+
+	/**
+	 * Enables ordering items by depth within their layers, before blend mode, shader and texture.
+	 * <p/>
+	 * When sorting by keys, depths are quantized into 65536 buckets evenly spread between <code>minDepth</code> and <code>maxDepth</code>,
+	 * depths outside the range are clamped. Items in the same bucket are ordered by render state.
+	 * <br/>Sorting by <code>compareTo</code> compares exact depths, see {@link BatchRenderItem#getDepth()}.
+	 * <br/>Depth changes of retained items require calling <code>markDirty</code>.
+	 *
+	 * @param minDepth depth mapped to the first bucket
+	 * @param maxDepth depth mapped to the last bucket, equal to <code>minDepth</code> to disable depth buckets
+	 */
+	public void setDepthRange(float minDepth, float maxDepth) {
+		if (maxDepth < minDepth) {
+			throw new IllegalArgumentException("max depth must be >= min depth");
+		}
+
+		this.minDepth = minDepth;
+		depthScale = maxDepth > minDepth ? DEPTH_BUCKETS / (maxDepth - minDepth) : 0;
 	}
 
 	/**
 	 * Registers the specified batch item type.
+	 * <p/>
+	 * Registering an item class again replaces its pool and keeps its type id.
 	 *
 	 * @param itemClass batch item typ
 	 * @param pool the pool supplying batch items
+	 * @return type id of the item class, to be used with <code>obtainItem(int)</code>
+	 */
+	public int addItemClass(Class<? extends BatchRenderItem> itemClass, Pool<BatchRenderItem> pool) {
+		int typeId = itemTypes.get(itemClass, -1);
+		if (typeId == -1) {
+			typeId = typeClasses.length;
+			itemTypes.put(itemClass, typeId);
+			typeClasses = Arrays.copyOf(typeClasses, typeId + 1);
+			typePools = Arrays.copyOf(typePools, typeId + 1);
+			typeClasses[typeId] = itemClass;
+		}
+		typePools[typeId] = pool;
+
+		if (stats != null) {
+			stats.addItemClass(itemClass, pool);
+		}
+		return typeId;
+	}
+
+	/**
+	 * Returns the type id assigned to the given item class.
+	 *
+	 * @param itemClass registered item class
+	 * @return type id or -1 if not registered
+	 */
+	public int getTypeId(Class<? extends BatchRenderItem> itemClass) {
+		return itemTypes.get(itemClass, -1);
+	}
+
+	/**
+	 * Enables or disables collecting render statistics.
+	 * <p/>
+	 * A frame ends with each call of <code>reset()</code>.
+	 * While disabled, no statistics are collected at all.
+	 *
+	 * @param enabled true to collect statistics
+	 * @param windowSize number of frames to average rolling statistics over
+	 */
+	public void setStatsEnabled(boolean enabled, int windowSize) {
+		if (!enabled) {
+			stats = null;
+		}
+		else if (stats == null) {
+			stats = new BatchRenderStats(maxLayers, windowSize);
+			for (int typeId = 0; typeId < typeClasses.length; typeId++) {
+				stats.addItemClass(typeClasses[typeId], typePools[typeId]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the render statistics of the last frame.
+	 *
+	 * @return statistics or null if disabled
 	 */
-	public void addItemClass(Class<? extends BatchRenderItem> itemClass, Pool<BatchRenderItem> pool) {
-		itemPools.put(itemClass, pool);
+	public BatchRenderStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Starts or stops recording the drawn items of each frame into the given capture.
+	 * <br/>A frame starts with the first <code>render</code> call and ends with <code>reset</code>.
+	 * Each layer is recorded once per frame, including items outside of the view, if the frame is drawn to several views.
+	 *
+	 * @param renderCapture capture ring buffer or null to stop recording, requires at most {@link SortKey#MAX_LAYERS} layers
+	 */
+	public void setRenderCapture(RenderCapture renderCapture) {
+		if (renderCapture != null) {
+			checkKeyLayers("render capture");
+		}
+		this.renderCapture = renderCapture;
+	}
+
+	public RenderCapture getRenderCapture() {
+		return renderCapture;
 	}
 
 	/**
@@ -74,11 +317,513 @@ public class BatchRenderQueue {
 	 * @return
 	 */
 	public <T extends BatchRenderItem> T obtainItem(Class<T> itemClass) {
-		Pool<BatchRenderItem> batchRenderItemPool = itemPools.get(itemClass);
-		if (batchRenderItemPool == null) {
+		int typeId = itemTypes.get(itemClass, -1);
+		if (typeId == -1) {
 			throw new RuntimeException("item class [" + itemClass + "] not defined");
 		}
-		return (T)batchRenderItemPool.obtain();
+		return obtainItem(typeId);
+	}
+
+	/**
+	 * Returns a free batch item from the object pool of the given item type.
+	 *
+	 * @param typeId type id returned by <code>addItemClass</code>
+	 * @param <T>
+	 * @return
+	 */
+	public <T extends BatchRenderItem> T obtainItem(int typeId) {
+		BatchRenderItem item = typePools[typeId].obtain();
+		item.setTypeId(typeId);
+		return (T)item;
+	}
+
+	/**
+	 * Returns the pool of the given item type.
+	 */
+	Pool<BatchRenderItem> getPool(int typeId) {
+		return typePools[typeId];
+	}
+
+	/**
+	 * Creates a sub-queue for submitting items from another thread.
+	 * <p/>
+	 * Submitted items are merged into this queue by <code>mergeSubmitters</code> or at the latest by <code>render</code>,
+	 * in the order the submitters were created. Submitters are kept for the lifetime of this queue and should be reused each frame.
+	 * <br/>While submitters are in use, items must not be obtained from this queue directly, since the shared pools are only locked by submitters.
+	 *
+	 * @return new submitter
+	 */
+	public BatchRenderSubmitter createSubmitter() {
+		BatchRenderSubmitter submitter = new BatchRenderSubmitter(this, submitters.length);
+		submitters = Arrays.copyOf(submitters, submitters.length + 1);
+		submitters[submitter.getId()] = submitter;
+		return submitter;
+	}
+
+	/**
+	 * Moves all items of all submitters into this queue.
+	 * <br/>Must be called after all workers have finished submitting, e.g. after joining their tasks.
+	 */
+	public void mergeSubmitters() {
+		BatchRenderSubmitter[] submitters = this.submitters;
+		for (int i = 0; i < submitters.length; i++) {
+			submitters[i].drainTo(this);
+		}
+	}
+
+	/**
+	 * Attaches a sprite stream.
+	 * <p/>
+	 * Sprites of each layer are drawn right after the batch items of the same layer,
+	 * multiple streams are drawn in the order they were attached.
+	 *
+	 * @param spriteStream sprite stream, requires at most {@link SortKey#MAX_LAYERS} layers
+	 */
+	public void addSpriteStream(SpriteStream spriteStream) {
+		checkKeyLayers("sprite stream");
+		spriteStreams = Arrays.copyOf(spriteStreams, spriteStreams.length + 1);
+		spriteStreams[spriteStreams.length - 1] = spriteStream;
+	}
+
+	public void removeSpriteStream(SpriteStream spriteStream) {
+		for (int s = 0; s < spriteStreams.length; s++) {
+			if (spriteStreams[s] == spriteStream) {
+				SpriteStream[] remaining = new SpriteStream[spriteStreams.length - 1];
+				System.arraycopy(spriteStreams, 0, remaining, 0, s);
+				System.arraycopy(spriteStreams, s + 1, remaining, s, remaining.length - s);
+				spriteStreams = remaining;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Adds an item drawn each frame until it is removed again.
+	 * <p/>
+	 * Retained items keep their sorted position across frames and are not affected by <code>reset</code>.
+	 * After changing a retained item, including its layer, <code>markDirty</code> must be called,
+	 * only dirty items are sorted into their new positions before the next <code>render</code>.
+	 * <br/>Retained items are never culled.
+	 *
+	 * @param item batch item, typically obtained by <code>obtainItem</code>
+	 * @return stable handle of the item
+	 */
+	public int addRetainedItem(BatchRenderItem item) {
+		int handle;
+		if (freeHandleCount > 0) {
+			handle = freeHandles[--freeHandleCount];
+		}
+		else {
+			handle = handleCount++;
+			if (handle == retainedItems.length) {
+				int capacity = Math.max(16, handle * 2);
+				retainedItems = Arrays.copyOf(retainedItems, capacity);
+				retainedItemLayers = Arrays.copyOf(retainedItemLayers, capacity);
+				retainedDirty = Arrays.copyOf(retainedDirty, capacity);
+			}
+		}
+
+		retainedItems[handle] = item;
+		retainedItemLayers[handle] = -1;
+		retainedDirty[handle] = false;
+		markDirty(handle);
+		retainedCount++;
+		return handle;
+	}
+
+	public BatchRenderItem getRetainedItem(int handle) {
+		return retainedItems[handle];
+	}
+
+	/**
+	 * Returns the number of retained items.
+	 *
+	 * @return
+	 */
+	public int getRetainedCount() {
+		return retainedCount;
+	}
+
+	/**
+	 * Marks a retained item as changed, so it is sorted again before the next <code>render</code>.
+	 *
+	 * @param handle handle returned by <code>addRetainedItem</code>
+	 */
+	public void markDirty(int handle) {
+		if (!retainedDirty[handle]) {
+			retainedDirty[handle] = true;
+			if (dirtyCount == dirtyHandles.length) {
+				dirtyHandles = Arrays.copyOf(dirtyHandles, Math.max(16, dirtyCount * 2));
+			}
+			dirtyHandles[dirtyCount++] = handle;
+		}
+	}
+
+	/**
+	 * Removes a retained item and returns it to its pool.
+	 * <br/>The handle may be reused by items added later.
+	 *
+	 * @param handle handle returned by <code>addRetainedItem</code>
+	 */
+	public void removeRetainedItem(int handle) {
+		BatchRenderItem item = retainedItems[handle];
+		retainedItems[handle] = null;
+		markDirty(handle);
+		freeItem(item);
+		retainedCount--;
+	}
+
+	/**
+	 * Removes all retained items and returns them to their pools.
+	 */
+	public void clearRetainedItems() {
+		for (int handle = 0; handle < handleCount; handle++) {
+			if (retainedItems[handle] != null) {
+				removeRetainedItem(handle);
+			}
+		}
+	}
+
+	/**
+	 * Moves dirty retained items to their new sorted positions.
+	 * <p/>
+	 * Only layers holding dirty items are touched: removed items and items leaving the layer are dropped,
+	 * changed items are re-keyed and items entering the layer are appended, then an insertion pass restores the order.
+	 */
+	private void updateRetainedItems() {
+		if (dirtyCount == 0) {
+			return;
+		}
+
+		boolean byKeys = sortMode != SortMode.COMPARATOR;
+		long[] dirtyLayers = this.dirtyLayers;
+		Arrays.fill(dirtyLayers, 0);
+		for (int d = 0; d < dirtyCount; d++) {
+			int handle = dirtyHandles[d];
+			int oldLayer = retainedItemLayers[handle];
+			if (oldLayer != -1) {
+				dirtyLayers[oldLayer >> 6] |= 1L << oldLayer;
+			}
+		}
+
+		// drop removed and leaving items, re-key changed items
+		for (int i = nextLayer(dirtyLayers, 0); i != -1 && i < maxLayers; i = nextLayer(dirtyLayers, i + 1)) {
+			RetainedLayer layer = retainedLayers[i];
+			int count = 0;
+			for (int j = 0; j < layer.count; j++) {
+				int handle = layer.handles[j];
+				BatchRenderItem item = layer.items[j];
+				if (retainedDirty[handle]) {
+					if (retainedItems[handle] != item || item.getLayer() != i) {
+						continue;
+					}
+					layer.keys[j] = byKeys ? sortKey(item, i) : 0;
+				}
+				layer.items[count] = item;
+				layer.keys[count] = layer.keys[j];
+				layer.handles[count] = handle;
+				count++;
+			}
+			Arrays.fill(layer.items, count, layer.count, null);
+			layer.count = count;
+		}
+
+		// append added and entering items
+		for (int d = 0; d < dirtyCount; d++) {
+			int handle = dirtyHandles[d];
+			BatchRenderItem item = retainedItems[handle];
+			if (item == null) {
+				retainedItemLayers[handle] = -1;
+				if (freeHandleCount == freeHandles.length) {
+					freeHandles = Arrays.copyOf(freeHandles, Math.max(16, freeHandleCount * 2));
+				}
+				freeHandles[freeHandleCount++] = handle;
+			}
+			else if (retainedItemLayers[handle] != item.getLayer()) {
+				int layer = item.getLayer();
+				RetainedLayer retainedLayer = retainedLayers[layer];
+				if (retainedLayer == null) {
+					retainedLayer = new RetainedLayer();
+					retainedLayers[layer] = retainedLayer;
+				}
+				retainedLayer.add(item, byKeys ? sortKey(item, layer) : 0, handle);
+				retainedItemLayers[handle] = layer;
+				dirtyLayers[layer >> 6] |= 1L << layer;
+			}
+			retainedDirty[handle] = false;
+		}
+		dirtyCount = 0;
+
+		for (int i = nextLayer(dirtyLayers, 0); i != -1 && i < maxLayers; i = nextLayer(dirtyLayers, i + 1)) {
+			RetainedLayer layer = retainedLayers[i];
+			layer.insertionSort(byKeys);
+			invalidateLayerCache(i);
+			if (targetLayers[i] != null) {
+				targetLayers[i].valid = false;
+			}
+			if (layer.count > 0) {
+				retainedActiveLayers[i >> 6] |= 1L << i;
+			}
+			else {
+				retainedActiveLayers[i >> 6] &= ~(1L << i);
+			}
+		}
+	}
+
+	/**
+	 * Enables or disables caching of a layer with static content.
+	 * <p/>
+	 * The first <code>render</code> after enabling or invalidating the cache records all items of the layer into a sprite cache.
+	 * As long as the cache stays valid, the layer is drawn from the cache and its queued items are neither sorted nor drawn,
+	 * so they may as well not be queued at all. Changes of retained items in the layer invalidate the cache automatically,
+	 * any other change of the layer content requires calling <code>invalidateLayerCache</code>.
+	 * <br/>Layers holding items not supporting {@link BatchRenderItem#cache} are drawn without cache.
+	 * Items are cached with the default sprite cache shader unless they specify a shader,
+	 * custom shader uniforms set while rendering are not recorded.
+	 *
+	 * @param layer layer index
+	 * @param maxSprites maximal number of sprites in the layer, up to 5460, or 0 to disable caching
+	 */
+	public void setLayerCached(int layer, int maxSprites) {
+		if (maxSprites < 0 || maxSprites > 5460) {
+			throw new IllegalArgumentException("max sprites must be between 0 and 5460");
+		}
+
+		LayerCache layerCache = layerCaches[layer];
+		if (layerCache != null) {
+			layerCache.dispose();
+			layerCaches[layer] = null;
+		}
+		if (maxSprites > 0) {
+			layerCaches[layer] = new LayerCache(maxSprites);
+		}
+		cachedLayers[layer >> 6] &= ~(1L << layer);
+	}
+
+	/**
+	 * Forces the cache of the given layer to be recorded again by the next <code>render</code>.
+	 *
+	 * @param layer layer index
+	 */
+	public void invalidateLayerCache(int layer) {
+		LayerCache layerCache = layerCaches[layer];
+		if (layerCache != null) {
+			layerCache.valid = false;
+			layerCache.uncacheable = false;
+			cachedLayers[layer >> 6] &= ~(1L << layer);
+		}
+	}
+
+	/**
+	 * Returns true if the given layer is currently drawn from its cache.
+	 *
+	 * @param layer layer index
+	 * @return
+	 */
+	public boolean isLayerCacheValid(int layer) {
+		return (cachedLayers[layer >> 6] & (1L << layer)) != 0;
+	}
+
+	/**
+	 * Draws a range of layers into an offscreen frame buffer, which is composited as a single quad.
+	 * <p/>
+	 * The frame buffer covers the given area in world coordinates and is only redrawn when the target was invalidated,
+	 * retained items of its layers changed or transient items were queued into its layers, and once more after they are no longer queued.
+	 * Thus, static content like parallax backgrounds or UI panels is best added as retained items.
+	 * <br/>Sprite streams of target layers are only drawn when the target is redrawn, post lighting items are never drawn into targets.
+	 * Targets are shared by all views and drawn without view culling, at most once per frame.
+	 * Views whose layer range covers only part of a target draw its layers in range directly instead.
+	 * Particles of libGDX particle effects keep their own blend function in targets, see {@link BatchRenderState};
+	 * {@link de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleSystem} blends correctly.
+	 * Frame buffers are obtained from the frame buffer pool of this queue, see <code>setFrameBufferPool</code>.
+	 *
+	 * @param fromLayer first layer of the target
+	 * @param toLayer last layer of the target, inclusive
+	 * @param area covered area in world coordinates, copied
+	 * @param width frame buffer width in pixels
+	 * @param height frame buffer height in pixels
+	 * @return new layer target
+	 */
+	public LayerTarget addLayerTarget(int fromLayer, int toLayer, Rectangle area, int width, int height) {
+		return addLayerTarget(fromLayer, toLayer, area, width, height, Pixmap.Format.RGBA8888);
+	}
+
+	/**
+	 * Draws a range of layers into an offscreen frame buffer of the given pixel format.
+	 *
+	 * @see #addLayerTarget(int, int, Rectangle, int, int)
+	 */
+	public LayerTarget addLayerTarget(int fromLayer, int toLayer, Rectangle area, int width, int height, Pixmap.Format format) {
+		if (fromLayer < 0 || toLayer >= maxLayers || toLayer < fromLayer) {
+			throw new IllegalArgumentException("invalid layer range " + fromLayer + " to " + toLayer);
+		}
+		for (int i = fromLayer; i <= toLayer; i++) {
+			if (targetLayers[i] != null) {
+				throw new IllegalArgumentException("layer " + i + " already belongs to a layer target");
+			}
+		}
+
+		LayerTarget layerTarget = new LayerTarget(fromLayer, toLayer, area, width, height, format);
+		Arrays.fill(targetLayers, fromLayer, toLayer + 1, layerTarget);
+		layerTargets.add(layerTarget);
+		return layerTarget;
+	}
+
+	/**
+	 * Removes a layer target, its layers are drawn directly again.
+	 * <br/>The frame buffer of the target is returned to the frame buffer pool.
+	 *
+	 * @param layerTarget target returned by <code>addLayerTarget</code>
+	 */
+	public void removeLayerTarget(LayerTarget layerTarget) {
+		if (!layerTargets.removeValue(layerTarget, true)) {
+			return;
+		}
+
+		Arrays.fill(targetLayers, layerTarget.fromLayer, layerTarget.toLayer + 1, null);
+		if (layerTarget.frameBuffer != null) {
+			getFrameBufferPool().free(layerTarget.frameBuffer);
+			layerTarget.frameBuffer = null;
+		}
+		layerTarget.valid = false;
+	}
+
+	/**
+	 * Specifies the pool providing the frame buffers of layer targets, e.g. to share frame buffers between several queues.
+	 * <br/>Must be set before adding layer targets. Pools set by this method are not disposed by the queue.
+	 *
+	 * @param frameBufferPool frame buffer pool or null for a pool owned by this queue
+	 */
+	public void setFrameBufferPool(FrameBufferPool frameBufferPool) {
+		this.frameBufferPool = frameBufferPool;
+	}
+
+	/**
+	 * Returns the pool providing the frame buffers of layer targets, created on first use if none was set.
+	 *
+	 * @return
+	 */
+	public FrameBufferPool getFrameBufferPool() {
+		if (frameBufferPool == null) {
+			frameBufferPool = new FrameBufferPool();
+			ownedFrameBufferPool = frameBufferPool;
+		}
+		return frameBufferPool;
+	}
+
+	/**
+	 * Releases all layer caches and layer targets.
+	 */
+	@Override
+	public void dispose() {
+		for (int i = 0; i < maxLayers; i++) {
+			if (layerCaches[i] != null) {
+				setLayerCached(i, 0);
+			}
+		}
+		while (layerTargets.size > 0) {
+			removeLayerTarget(layerTargets.peek());
+		}
+		if (ownedFrameBufferPool != null) {
+			ownedFrameBufferPool.dispose();
+			if (frameBufferPool == ownedFrameBufferPool) {
+				frameBufferPool = null;
+			}
+			ownedFrameBufferPool = null;
+		}
+	}
+
+	/**
+	 * Enables culling against the given rectangle.
+	 * <p/>
+	 * Items whose bounds do not overlap the rectangle are dropped by <code>queueItem</code> and immediately returned to their pool.
+	 * Items without known bounds are never culled, see {@link BatchRenderItem#getBounds}.
+	 *
+	 * @param cullRectangle visible area in world coordinates, copied; null to disable culling
+	 */
+	public void setCullRectangle(Rectangle cullRectangle) {
+		if (cullRectangle != null) {
+			this.cullRectangle.set(cullRectangle);
+		}
+		this.cullFrustum = null;
+		this.culling = cullRectangle != null;
+	}
+
+	/**
+	 * Enables culling against the given frustum, typically the frustum of the camera.
+	 * <br/>The frustum is referenced, not copied, so camera updates apply without calling this method again.
+	 *
+	 * @param cullFrustum frustum or null to disable culling
+	 */
+	public void setCullFrustum(Frustum cullFrustum) {
+		this.cullFrustum = cullFrustum;
+		this.culling = cullFrustum != null;
+	}
+
+	/**
+	 * Returns the number of items culled since the last <code>reset</code>.
+	 *
+	 * @return
+	 */
+	public int getCulledCount() {
+		return culledCount;
+	}
+
+	/**
+	 * Splits drawing into a pre lighting pass, the given lighting composite and a post lighting pass.
+	 * <p/>
+	 * Items reporting {@link BatchRenderItem#isPostLighting()} are queued into layers of their own,
+	 * sorted like all other items and drawn after the lighting pass, again ordered by layer.
+	 * Thus, a single queue filled and sorted once replaces separate queues for both passes.
+	 * <br/>Retained items, cached layers and sprite streams are always drawn before lighting.
+	 * <br/>Must not be changed while items are queued.
+	 *
+	 * @param lightingPass lighting composite or null to draw post lighting items like all other items
+	 */
+	public void setLightingPass(LightingPass lightingPass) {
+		this.lightingPass = lightingPass;
+	}
+
+	public LightingPass getLightingPass() {
+		return lightingPass;
+	}
+
+	private boolean isCulled(BatchRenderItem item) {
+		Rectangle bounds = itemBounds;
+		if (!item.getBounds(bounds)) {
+			return false;
+		}
+		if (cullFrustum != null) {
+			float halfWidth = bounds.width * 0.5f;
+			float halfHeight = bounds.height * 0.5f;
+			return !cullFrustum.boundsInFrustum(bounds.x + halfWidth, bounds.y + halfHeight, 0, halfWidth, halfHeight, 0);
+		}
+		return !cullRectangle.overlaps(bounds);
+	}
+
+	private boolean isOutsideView(BatchRenderItem item) {
+		return item.getBounds(itemBounds) && !viewCullRectangle.overlaps(itemBounds);
+	}
+
+	private void freeItem(BatchRenderItem item) {
+		typePools[resolveTypeId(item)].free(item);
+	}
+
+	/**
+	 * Returns the type id of an item in this queue.
+	 * <br/>The stamped type id is only trusted if it belongs to the item's class here, since the item might have been obtained from another queue.
+	 */
+	private int resolveTypeId(BatchRenderItem item) {
+		int typeId = item.getTypeId();
+		Class itemClass = item.getClass();
+		if (typeId < 0 || typeId >= typeClasses.length || typeClasses[typeId] != itemClass) {
+			typeId = itemTypes.get(itemClass, -1);
+			if (typeId == -1) {
+				throw new IllegalArgumentException("item class [" + itemClass + "] not defined");
+			}
+			item.setTypeId(typeId);
+		}
+		return typeId;
 	}
 
 	/**
@@ -87,14 +832,113 @@ public class BatchRenderQueue {
 	 * @param item batch item
 	 */
 	public void queueItem(BatchRenderItem item) {
+		if (culling && isCulled(item)) {
+			freeItem(item);
+			culledCount++;
+			if (stats != null) {
+				stats.countCulled();
+			}
+			return;
+		}
+
 		int layer = item.getLayer();
-		BatchRenderItem[] items = itemLayers.get(layer);
-		if (itemCount[layer] == items.length) {
-			items = Arrays.copyOf(items, items.length * 2);
-			itemLayers.set(layer, items);
+		boolean postLighting = lightingPass != null && item.isPostLighting();
+		RenderLayer[] layers = postLighting ? postLayers : this.layers;
+		RenderLayer renderLayer = layers[layer];
+		if (renderLayer == null) {
+			renderLayer = new RenderLayer(initialCapacity);
+			layers[layer] = renderLayer;
+		}
+		if (renderLayer.count == 0) {
+			long[] activeLayers = postLighting ? postActiveLayers : this.activeLayers;
+			activeLayers[layer >> 6] |= 1L << layer;
+		}
+
+		int i = renderLayer.add(item);
+		if (stats != null) {
+			stats.countItem(item, layer);
+		}
+
+		if (sortMode != SortMode.COMPARATOR) {
+			renderLayer.setKey(i, sortKey(item, layer));
+		}
+	}
+
+	/**
+	 * Sorts all layers in parallel, so the following <code>render</code> only needs to draw.
+	 * <p/>
+	 * Layers are sorted by tasks of the fork join pool, very large layers are split further and merged again.
+	 * Blocks until all layers are sorted. Optional, layers not prepared are sorted by <code>render</code>.
+	 * <br/>Items must not be queued concurrently.
+	 */
+	public void prepare() {
+		mergeSubmitters();
+		updateRetainedItems();
+		long sortStart = stats != null ? System.nanoTime() : 0;
+
+		List<ForkJoinTask<?>> prepareTasks = this.prepareTasks;
+		SortMode sortMode = this.sortMode;
+		for (int i = nextLayer(activeLayers, 0); i != -1 && i < maxLayers; i = nextLayer(activeLayers, i + 1)) {
+			RenderLayer layer = layers[i];
+			if (!layer.sorted && !isLayerCacheValid(i)) {
+				addPrepareTask(layer, sortMode);
+			}
+		}
+		for (int i = nextLayer(postActiveLayers, 0); i != -1 && i < maxLayers; i = nextLayer(postActiveLayers, i + 1)) {
+			RenderLayer layer = postLayers[i];
+			if (!layer.sorted) {
+				addPrepareTask(layer, sortMode);
+			}
+		}
+		if (prepareTasks.isEmpty()) {
+			return;
+		}
+
+		ForkJoinPool forkJoinPool = this.forkJoinPool != null ? this.forkJoinPool : ForkJoinPool.commonPool();
+		try {
+			forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(prepareTasks)));
+		}
+		finally {
+			prepareTasks.clear();
+		}
+
+		synchronized (freeSorters) {
+			for (LayerSorter freeSorter : freeSorters) {
+				sorter.coherentSort.transferCounters(freeSorter.coherentSort);
+			}
+		}
+		if (stats != null) {
+			stats.addSortTime(System.nanoTime() - sortStart);
+		}
+	}
+
+	private void addPrepareTask(RenderLayer layer, SortMode sortMode) {
+		if (layer.count >= parallelSortThreshold && sortMode != SortMode.ADAPTIVE) {
+			prepareTasks.add(new ParallelLayerSort(this, layer, sortMode == SortMode.RADIX, parallelSortThreshold / 4));
+		}
+		else {
+			prepareTasks.add(ForkJoinTask.adapt(() -> {
+				LayerSorter sorter = obtainSorter();
+				try {
+					sorter.sort(layer, sortMode);
+				}
+				finally {
+					freeSorter(sorter);
+				}
+			}));
+		}
+	}
+
+	LayerSorter obtainSorter() {
+		synchronized (freeSorters) {
+			return freeSorters.size > 0 ? freeSorters.pop() : new LayerSorter();
+		}
+	}
+
+	void freeSorter(LayerSorter sorter) {
+		synchronized (freeSorters) {
+			freeSorters.add(sorter);
 		}
-		int i = itemCount[layer]++;
-		items[i] = item;
 	}
 
 	/**
@@ -113,22 +957,407 @@ public class BatchRenderQueue {
 		render(batch, time, 0, maxLayers);
 	}
 
+	/**
+	 * Draws all queued batch items to several views, sorting each layer only once.
+	 * <p/>
+	 * For each view, its screen bounds and projection are applied and its sprite batch is opened and closed again.
+	 * The batches must not be open when calling this method. Call <code>reset</code> once after all views are drawn.
+	 * <br/>Culling set on this queue applies while queueing and should cover all views, view culling applies while drawing.
+	 * <br/>Statistics add up render calls, state switches and render times of all views,
+	 * texture switches of each layer and render captures are recorded once per frame.
+	 *
+	 * @param time current time in ns
+	 * @param views views to draw to, in order
+	 */
+	public void render(long time, BatchRenderView... views) {
+		for (BatchRenderView view : views) {
+			SpriteBatch batch = view.getBatch();
+			view.apply();
+			batch.begin();
+			viewCullRectangle = view.getCullRectangle();
+			currentView = view;
+			try {
+				render(batch, time, view.getFromLayer(), view.getToLayer());
+			}
+			finally {
+				viewCullRectangle = null;
+				currentView = null;
+				batch.end();
+			}
+		}
+	}
+
 	public void render(SpriteBatch batch, long time, int fromLayer, int toLayer) {
-		for (int i = fromLayer; i < maxLayers && i <= toLayer; i++) {
-			int itemCount = this.itemCount[i];
-			if (itemCount > 0) {
-				BatchRenderItem[] items = itemLayers.get(i);
-				Sort.instance().sort(items, 0, itemCount - 1);
-
-				for (int j = 0; j < itemCount; j++) {
-					items[j].render(batch, time);
+		mergeSubmitters();
+		renderState.begin(batch);
+		renderState.setFrameId(frameId);
+		BatchRenderStats stats = this.stats;
+		RenderCapture renderCapture = this.renderCapture;
+		if (renderCapture != null && !renderCapture.isFrameOpen()) {
+			renderCapture.beginFrame(typeClasses);
+		}
+		int renderCalls = batch.renderCalls;
+		int blendSwitches = renderState.getBlendSwitches();
+		int shaderSwitches = renderState.getShaderSwitches();
+
+		SpriteStream[] spriteStreams = this.spriteStreams;
+		long[] renderLayers = this.renderLayers;
+		updateRetainedItems();
+		for (int w = 0; w < renderLayers.length; w++) {
+			renderLayers[w] = activeLayers[w] | retainedActiveLayers[w] | cachedLayers[w];
+		}
+		for (int s = 0; s < spriteStreams.length; s++) {
+			spriteStreams[s].markLayers(renderLayers);
+		}
+		for (int t = 0; t < layerTargets.size; t++) {
+			int targetLayer = layerTargets.get(t).fromLayer;
+			renderLayers[targetLayer >> 6] |= 1L << targetLayer;
+		}
+
+		for (int i = nextLayer(renderLayers, fromLayer); i != -1 && i < maxLayers && i <= toLayer; i = nextLayer(renderLayers, i + 1)) {
+			LayerTarget layerTarget = targetLayers[i];
+			// targets reaching beyond the layer range are not composited, their layers within the range are drawn directly
+			if (layerTarget != null && layerTarget.fromLayer >= fromLayer && layerTarget.toLayer <= toLayer) {
+				renderTarget(batch, layerTarget, time);
+				i = layerTarget.toLayer;
+			}
+			else {
+				renderLayer(batch, i, time);
+			}
+		}
+
+		if (lightingPass != null) {
+			renderState.endShapes();
+			batch.flush();
+			// the lighting pass may restart the batch, which clears its render call counter
+			int preLightingCalls = batch.renderCalls - renderCalls;
+			lightingPass.render(batch, time);
+			renderState.begin(batch);
+			renderCalls = batch.renderCalls - preLightingCalls;
+
+			for (int i = nextLayer(postActiveLayers, fromLayer); i != -1 && i < maxLayers && i <= toLayer; i = nextLayer(postActiveLayers, i + 1)) {
+				RenderLayer renderLayer = postLayers[i];
+				long sortStart = stats != null ? System.nanoTime() : 0;
+				if (!renderLayer.sorted) {
+					sorter.sort(renderLayer, sortMode);
+				}
+
+				long renderStart = stats != null ? System.nanoTime() : 0;
+				renderItems(renderLayer, renderLayer.count, i, time, recordOnce(recordedPostLayers, i));
+				if (stats != null) {
+					stats.addRenderTime(System.nanoTime() - renderStart);
+					stats.addSortTime(renderStart - sortStart);
+				}
+			}
+		}
+		renderState.endShapes();
+
+		if (stats != null) {
+			stats.addRenderCalls(batch.renderCalls - renderCalls);
+			stats.addBlendSwitches(renderState.getBlendSwitches() - blendSwitches);
+			stats.addShaderSwitches(renderState.getShaderSwitches() - shaderSwitches);
+		}
+	}
+
+	/**
+	 * Draws the layers of a layer target into its frame buffer if needed and composites the frame buffer.
+	 */
+	private void renderTarget(SpriteBatch batch, LayerTarget layerTarget, long time) {
+		int queuedLayer = nextLayer(activeLayers, layerTarget.fromLayer);
+		boolean queued = queuedLayer != -1 && queuedLayer <= layerTarget.toLayer;
+		// transient items drawn last time must be cleared once they are no longer queued, other views of this frame reuse the content
+		if (!layerTarget.valid || (layerTarget.frameId != frameId && (queued || layerTarget.transientContent))) {
+			FrameBuffer frameBuffer = layerTarget.frameBuffer;
+			if (frameBuffer == null) {
+				frameBuffer = getFrameBufferPool().obtain(layerTarget.format, layerTarget.width, layerTarget.height, false);
+				layerTarget.frameBuffer = frameBuffer;
+			}
+
+			renderState.endShapes();
+			batch.flush();
+			Matrix4 projection = targetProjection.set(batch.getProjectionMatrix());
+			// targets are shared by all views, so they hold their whole area
+			Rectangle viewCullRectangle = this.viewCullRectangle;
+			this.viewCullRectangle = null;
+			frameBuffer.begin();
+			Gdx.gl.glClearColor(0, 0, 0, 0);
+			Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+			batch.setProjectionMatrix(layerTarget.projection);
+			renderState.invalidate();
+			renderState.beginTarget();
+
+			long[] renderLayers = this.renderLayers;
+			for (int i = nextLayer(renderLayers, layerTarget.fromLayer); i != -1 && i <= layerTarget.toLayer; i = nextLayer(renderLayers, i + 1)) {
+				renderLayer(batch, i, time);
+			}
+
+			renderState.endShapes();
+			batch.flush();
+			renderState.endTarget();
+			frameBuffer.end();
+			this.viewCullRectangle = viewCullRectangle;
+			if (currentView != null) {
+				currentView.applyViewport();
+			}
+			batch.setProjectionMatrix(projection);
+			layerTarget.valid = true;
+			layerTarget.transientContent = queued;
+			layerTarget.frameId = frameId;
+			layerTarget.misses++;
+		}
+		else {
+			layerTarget.hits++;
+		}
+
+		SpriteBatch targetBatch = renderState.getBatch();
+		renderState.setShader(null);
+		renderState.setColor(null);
+		renderState.enableBlending(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		Rectangle area = layerTarget.area;
+		// frame buffer textures are upside down
+		targetBatch.draw(layerTarget.frameBuffer.getColorBufferTexture(), area.x, area.y, area.width, area.height, 0, 1, 1, 0);
+	}
+
+	/**
+	 * Draws the contents of a single layer: from its cache, or its transient and retained items, followed by sprite streams.
+	 */
+	private void renderLayer(SpriteBatch batch, int i, long time) {
+		BatchRenderStats stats = this.stats;
+		SpriteStream[] spriteStreams = this.spriteStreams;
+		RenderLayer renderLayer = layers[i];
+		RetainedLayer retainedLayer = retainedLayers[i];
+		int itemCount = renderLayer != null ? renderLayer.count : 0;
+		int retainedCount = retainedLayer != null ? retainedLayer.count : 0;
+		LayerCache layerCache = layerCaches[i];
+		boolean cached = layerCache != null && !layerCache.uncacheable && renderCached(batch, i, layerCache, itemCount, retainedCount);
+		if (!cached && (itemCount > 0 || retainedCount > 0)) {
+			long sortStart = stats != null ? System.nanoTime() : 0;
+			if (itemCount > 0 && !renderLayer.sorted) {
+				sorter.sort(renderLayer, sortMode);
+			}
+
+			long renderStart = stats != null ? System.nanoTime() : 0;
+			if (retainedCount == 0) {
+				renderItems(renderLayer, itemCount, i, time, recordOnce(recordedLayers, i));
+			}
+			else {
+				renderMerged(renderLayer, itemCount, retainedLayer, i, time, recordOnce(recordedLayers, i));
+			}
+
+			if (stats != null) {
+				stats.addRenderTime(System.nanoTime() - renderStart);
+				stats.addSortTime(renderStart - sortStart);
+			}
+		}
+
+		for (int s = 0; s < spriteStreams.length; s++) {
+			spriteStreams[s].render(renderState, i);
+		}
+	}
+
+	/**
+	 * Checks whether a layer is recorded by the render capture and statistics, marking it as recorded for the current frame.
+	 * <br/>Views drawing the same layer again do not record it twice.
+	 */
+	private boolean recordOnce(long[] recordedLayers, int layer) {
+		if ((renderCapture == null && stats == null) || (recordedLayers[layer >> 6] & (1L << layer)) != 0) {
+			return false;
+		}
+		recordedLayers[layer >> 6] |= 1L << layer;
+		return true;
+	}
+
+	/**
+	 * Draws the sorted transient items of a layer.
+	 */
+	private void renderItems(RenderLayer renderLayer, int itemCount, int layer, long time, boolean record) {
+		BatchRenderItem[] items = renderLayer.items;
+		if (viewCullRectangle == null) {
+			for (int j = 0; j < itemCount; j++) {
+				items[j].render(renderState, time);
+			}
+		}
+		else {
+			for (int j = 0; j < itemCount; j++) {
+				if (!isOutsideView(items[j])) {
+					items[j].render(renderState, time);
 				}
 			}
 		}
+		if (record && renderCapture != null) {
+			captureLayer(renderCapture, renderLayer, itemCount, layer);
+		}
+		if (record && stats != null) {
+			countTextureSwitches(stats, renderLayer, itemCount);
+		}
 	}
 
+	/**
+	 * Draws a layer from its cache, recording the cache first if it is not valid.
+	 *
+	 * @return false if the layer holds items which cannot be cached
+	 */
+	private boolean renderCached(SpriteBatch batch, int layer, LayerCache layerCache, int itemCount, int retainedCount) {
+		if (!layerCache.valid) {
+			RenderLayer renderLayer = layers[layer];
+			if (itemCount > 0 && !renderLayer.sorted) {
+				sorter.sort(renderLayer, sortMode);
+			}
+
+			int count = itemCount + retainedCount;
+			if (cacheItems.length < count) {
+				cacheItems = new BatchRenderItem[count];
+			}
+			mergeLayer(renderLayer, itemCount, retainedLayers[layer], retainedCount, cacheItems);
+			boolean recorded = layerCache.record(cacheItems, count);
+			Arrays.fill(cacheItems, 0, count, null);
+			if (!recorded) {
+				layerCache.uncacheable = true;
+				return false;
+			}
+			layerCache.valid = true;
+			cachedLayers[layer >> 6] |= 1L << layer;
+		}
+
+		layerCache.draw(renderState);
+		renderState.invalidate();
+		return true;
+	}
+
+	/**
+	 * Collects transient and retained items of a layer in draw order, see <code>renderMerged</code>.
+	 */
+	private void mergeLayer(RenderLayer renderLayer, int itemCount, RetainedLayer retainedLayer, int retainedCount, BatchRenderItem[] target) {
+		boolean byKeys = sortMode != SortMode.COMPARATOR;
+		int i = 0;
+		int r = 0;
+		int k = 0;
+		while (i < itemCount || r < retainedCount) {
+			boolean takeRetained;
+			if (i == itemCount) {
+				takeRetained = true;
+			}
+			else if (r == retainedCount) {
+				takeRetained = false;
+			}
+			else if (byKeys) {
+				takeRetained = Long.compareUnsigned(retainedLayer.keys[r], renderLayer.keys[i]) <= 0;
+			}
+			else {
+				takeRetained = retainedLayer.items[r].compareTo(renderLayer.items[i]) <= 0;
+			}
+			target[k++] = takeRetained ? retainedLayer.items[r++] : renderLayer.items[i++];
+		}
+	}
+
+	/**
+	 * Draws transient and retained items of a layer, merging both sorted sequences.
+	 * <br/>Retained items are drawn first if both compare equal.
+	 */
+	private void renderMerged(RenderLayer renderLayer, int itemCount, RetainedLayer retainedLayer, int layer, long time, boolean record) {
+		boolean byKeys = sortMode != SortMode.COMPARATOR;
+		BatchRenderItem[] items = renderLayer != null ? renderLayer.items : null;
+		long[] keys = renderLayer != null ? renderLayer.keys : null;
+		BatchRenderItem[] retainedItems = retainedLayer.items;
+		long[] retainedKeys = retainedLayer.keys;
+		int retainedCount = retainedLayer.count;
+
+		int textureSwitches = 0;
+		int i = 0;
+		int r = 0;
+		while (i < itemCount || r < retainedCount) {
+			boolean takeRetained;
+			if (i == itemCount) {
+				takeRetained = true;
+			}
+			else if (r == retainedCount) {
+				takeRetained = false;
+			}
+			else if (byKeys) {
+				takeRetained = Long.compareUnsigned(retainedKeys[r], keys[i]) <= 0;
+			}
+			else {
+				takeRetained = retainedItems[r].compareTo(items[i]) <= 0;
+			}
+
+			BatchRenderItem item;
+			long key;
+			if (takeRetained) {
+				item = retainedItems[r];
+				key = retainedKeys[r++];
+			}
+			else {
+				item = items[i];
+				key = byKeys ? keys[i] : 0;
+				i++;
+			}
+			if (record && renderCapture != null) {
+				renderCapture.record(item, byKeys ? key : sortKey(item, layer));
+			}
+			if (record && stats != null) {
+				int texture = SortKey.getTexture(byKeys ? key : item.getSortKey());
+				if (texture != 0 && texture != lastTexture) {
+					textureSwitches++;
+					lastTexture = texture;
+				}
+			}
+			if (viewCullRectangle != null && isOutsideView(item)) {
+				continue;
+			}
+			item.render(renderState, time);
+		}
+
+		if (record && stats != null) {
+			stats.addTextureSwitches(textureSwitches);
+		}
+	}
+
+	private void captureLayer(RenderCapture renderCapture, RenderLayer renderLayer, int itemCount, int layer) {
+		BatchRenderItem[] items = renderLayer.items;
+		long[] keys = sortMode != SortMode.COMPARATOR ? renderLayer.keys : null;
+		for (int j = 0; j < itemCount; j++) {
+			renderCapture.record(items[j], keys != null ? keys[j] : sortKey(items[j], layer));
+		}
+	}
+
+	private void countTextureSwitches(BatchRenderStats stats, RenderLayer layer, int itemCount) {
+		BatchRenderItem[] items = layer.items;
+		long[] keys = sortMode != SortMode.COMPARATOR ? layer.keys : null;
+		int textureSwitches = 0;
+		for (int j = 0; j < itemCount; j++) {
+			int texture = SortKey.getTexture(keys != null ? keys[j] : items[j].getSortKey());
+			if (texture != 0 && texture != lastTexture) {
+				textureSwitches++;
+				lastTexture = texture;
+			}
+		}
+		stats.addTextureSwitches(textureSwitches);
+	}
+
+	/**
+	 * Resets this render queue and all attached sprite streams and completes the current statistics frame.
+	 */
 	public void reset() {
 		reset(0, maxLayers);
+		for (int s = 0; s < spriteStreams.length; s++) {
+			spriteStreams[s].reset();
+		}
+		if (stats != null) {
+			stats.endFrame();
+		}
+		lastTexture = 0;
+		culledCount = 0;
+		if (renderCapture != null) {
+			renderCapture.endFrame();
+		}
+		Arrays.fill(recordedLayers, 0);
+		Arrays.fill(recordedPostLayers, 0);
+
+		frames++;
+		frameId = FRAME_IDS.incrementAndGet();
+		if (shrinkFrames > 0 && frames % shrinkFrames == 0) {
+			shrinkLayers();
+		}
 	}
 
 	/**
@@ -137,21 +1366,174 @@ public class BatchRenderQueue {
 	 * <br/>Frees all pooled batch items.
 	 */
 	public void reset(int fromLayer, int toLayer) {
-		for (int i = fromLayer; i < maxLayers && i <= toLayer; i++) {
-			BatchRenderItem[] items = itemLayers.get(i);
-			int itemCount = this.itemCount[i];
-			for (int j = 0; j < itemCount; j++) {
-				BatchRenderItem batchItem = items[j];
-				Pool<BatchRenderItem> itemPool = itemPools.get(batchItem.getClass());
-				itemPool.free(batchItem);
-				items[j] = null;
+		resetLayers(layers, activeLayers, fromLayer, toLayer);
+		resetLayers(postLayers, postActiveLayers, fromLayer, toLayer);
+	}
+
+	private void resetLayers(RenderLayer[] layers, long[] activeLayers, int fromLayer, int toLayer) {
+		for (int i = nextLayer(activeLayers, fromLayer); i != -1 && i <= toLayer; i = nextLayer(activeLayers, i + 1)) {
+			RenderLayer layer = layers[i];
+			int itemCount = layer.count;
+			BatchRenderItem[] items = layer.items;
+			freeItems(items, itemCount);
+			Arrays.fill(items, 0, itemCount, null);
+			if (itemCount > layer.highWater) {
+				layer.highWater = itemCount;
+			}
+			layer.count = 0;
+			activeLayers[i >> 6] &= ~(1L << i);
+		}
+	}
+
+	/**
+	 * Applies the shrink policy to all allocated layers currently not holding any items.
+	 */
+	private void shrinkLayers() {
+		shrinkLayers(layers);
+		shrinkLayers(postLayers);
+	}
+
+	private void shrinkLayers(RenderLayer[] layers) {
+		for (int i = 0; i < maxLayers; i++) {
+			RenderLayer layer = layers[i];
+			if (layer == null || layer.count > 0) {
+				continue;
 			}
-			this.itemCount[i] = 0;
+
+			int highWater = layer.highWater;
+			if (highWater == 0) {
+				layers[i] = null;
+			}
+			else if (highWater < layer.getCapacity() * shrinkRatio) {
+				int capacity = Math.max(initialCapacity, highWater * 2);
+				if (capacity < layer.getCapacity()) {
+					layer.shrink(capacity);
+				}
+			}
+			layer.highWater = 0;
+		}
+	}
+
+	/**
+	 * Returns the index of the next set bit starting at the given layer.
+	 *
+	 * @return layer index or -1 if there is none
+	 */
+	private static int nextLayer(long[] layerBits, int fromLayer) {
+		fromLayer = Math.max(fromLayer, 0);
+		int word = fromLayer >> 6;
+		if (word >= layerBits.length) {
+			return -1;
+		}
+
+		long bits = layerBits[word] & (-1L << fromLayer);
+		while (bits == 0) {
+			if (++word == layerBits.length) {
+				return -1;
+			}
+			bits = layerBits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Ensures layers fit into sort keys for the given feature.
+	 */
+	private void checkKeyLayers(String feature) {
+		if (maxLayers > SortKey.MAX_LAYERS) {
+			throw new IllegalStateException(feature + " requires max layers <= " + SortKey.MAX_LAYERS);
+		}
+	}
+
+	/**
+	 * Returns the full sort key of an item in the given layer, including its depth bucket if enabled.
+	 */
+	private long sortKey(BatchRenderItem item, int layer) {
+		long key = SortKey.withLayer(item.getSortKey(), layer);
+		if (depthScale != 0) {
+			float bucket = (item.getDepth() - minDepth) * depthScale;
+			key = SortKey.withDepth(key, bucket <= 0 ? 0 : bucket >= DEPTH_BUCKETS ? DEPTH_BUCKETS : (int)bucket);
 		}
+		return key;
 	}
 
+	/**
+	 * Returns items to their pools, the pool is only looked up again when the type id changes.
+	 */
+	private void freeItems(BatchRenderItem[] items, int itemCount) {
+		Pool<BatchRenderItem>[] typePools = this.typePools;
+		int lastTypeId = -1;
+		Pool<BatchRenderItem> pool = null;
+		for (int j = 0; j < itemCount; j++) {
+			BatchRenderItem item = items[j];
+			int typeId = resolveTypeId(item);
+			if (typeId != lastTypeId) {
+				pool = typePools[typeId];
+				lastTypeId = typeId;
+			}
+			pool.free(item);
+		}
+	}
+
+	private static final int DEPTH_BUCKETS = (1 << SortKey.DEPTH_BITS) - 1;
+	private static final AtomicLong FRAME_IDS = new AtomicLong();
+
 	private int maxLayers;
-	private ObjectMap<Class, Pool<BatchRenderItem>> itemPools;
-	private List<BatchRenderItem[]> itemLayers;
-	private int itemCount[];
+	private int initialCapacity;
+	private ObjectIntMap<Class> itemTypes;
+	private Class[] typeClasses;
+	private Pool<BatchRenderItem>[] typePools;
+	private SpriteStream[] spriteStreams;
+	private BatchRenderSubmitter[] submitters;
+	private RenderLayer[] layers;
+	private long[] activeLayers;
+	private RenderLayer[] postLayers;
+	private long[] postActiveLayers;
+	private long[] renderLayers;
+	private RetainedLayer[] retainedLayers;
+	private long[] retainedActiveLayers;
+	private long[] dirtyLayers;
+	private LayerCache[] layerCaches;
+	private long[] cachedLayers;
+	private BatchRenderItem[] cacheItems;
+	private BatchRenderItem[] retainedItems;
+	private int[] retainedItemLayers;
+	private boolean[] retainedDirty;
+	private int[] dirtyHandles;
+	private int dirtyCount;
+	private int[] freeHandles;
+	private int freeHandleCount;
+	private int handleCount;
+	private int retainedCount;
+	private int shrinkFrames;
+	private float shrinkRatio;
+	private long frames;
+	private long frameId;
+	private SortMode sortMode;
+	private LayerSorter sorter;
+	private Array<LayerSorter> freeSorters;
+	private List<ForkJoinTask<?>> prepareTasks;
+	private ForkJoinPool forkJoinPool;
+	private int parallelSortThreshold;
+	private float minDepth;
+	private float depthScale;
+	private BatchRenderState renderState;
+	private BatchRenderStats stats;
+	private RenderCapture renderCapture;
+	private long[] recordedLayers;
+	private long[] recordedPostLayers;
+	private int lastTexture;
+	private boolean culling;
+	private Rectangle cullRectangle;
+	private Frustum cullFrustum;
+	private Rectangle itemBounds;
+	private Rectangle viewCullRectangle;
+	private LightingPass lightingPass;
+	private LayerTarget[] targetLayers;
+	private Array<LayerTarget> layerTargets;
+	private FrameBufferPool frameBufferPool;
+	private FrameBufferPool ownedFrameBufferPool;
+	private Matrix4 targetProjection;
+	private BatchRenderView currentView;
+	private int culledCount;
 }
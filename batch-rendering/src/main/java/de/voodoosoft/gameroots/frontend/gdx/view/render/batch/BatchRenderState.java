@@ -0,0 +1,386 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.math.Matrix4;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Tracks the state of a sprite batch and forwards only actual state changes.
+ * <p/>
+ * Batch items should change blending, shader, color and matrices through this tracker instead of calling the sprite batch directly,
+ * so redundant state changes neither cost time nor trigger additional batch flushes.
+ * <br/>Each render queue owns its own tracker, so multiple queues never share any state.
+ * <p/>
+ * After being bound with <code>begin</code> or after <code>invalidate</code>, the state of the batch is unknown
+ * and the first change of each state is always forwarded.
+ * <p/>
+ * Shape items draw in shape phases started by <code>beginShapes</code>, which close the sprite batch and open a shape renderer.
+ * The batch is only opened again once an item asks for it with <code>getBatch</code>, so consecutive shape items of the same type
+ * share a single shape renderer pass. <code>endShapes</code> closes the last phase and reopens the batch only if it was drawing before.
+ * <p/>
+ * While drawing into a layer target, all blend functions apply to the color channels only
+ * and alpha is accumulated with <code>GL_ONE, GL_ONE_MINUS_SRC_ALPHA</code>,
+ * so the target holds the premultiplied result of its layers and composites like drawing them directly.
+ * Items setting blend functions on the batch directly, like libGDX particle effects, blend with their own function until
+ * they invalidate the tracker, so their sprites write plain alpha into targets.
+ */
+public class BatchRenderState {
+	public BatchRenderState() {
+		projection = new float[16];
+		transform = new float[16];
+	}
+
+	/**
+	 * Binds this tracker to the given sprite batch.
+	 *
+	 * @param batch sprite batch to forward state changes to
+	 */
+	public void begin(SpriteBatch batch) {
+		this.batch = batch;
+		shapeRenderer = null;
+		shapeType = null;
+		frameId = 0;
+		invalidate();
+	}
+
+	/**
+	 * Returns the id of the render queue frame being drawn.
+	 * <br/>Ids are unique across all render queues and identical for all draws of the same frame,
+	 * e.g. for several views or when a render pipeline draws a published frame again.
+	 * Items advancing simulations while drawing use it for advancing only once per frame.
+	 *
+	 * @return frame id, 0 when not drawn by a render queue
+	 */
+	public long getFrameId() {
+		return frameId;
+	}
+
+	void setFrameId(long frameId) {
+		this.frameId = frameId;
+	}
+
+	/**
+	 * Returns the bound sprite batch, ending the current shape phase first.
+	 * <br/>Callers changing the batch state directly must call <code>invalidate</code> afterwards.
+	 *
+	 * @return
+	 */
+	public SpriteBatch getBatch() {
+		if (shapeRenderer != null) {
+			closeShapes();
+			// the caller draws with the batch
+			if (!batch.isDrawing()) {
+				batch.begin();
+			}
+			batch.renderCalls = renderCalls;
+		}
+		return batch;
+	}
+
+	/**
+	 * Starts or continues a shape phase drawing with the given shape renderer and shape type.
+	 * <p/>
+	 * The sprite batch is flushed and closed when the phase starts, the shape renderer takes over its matrices.
+	 * Changing renderer or type restarts the shape renderer, changing the blend function flushes it.
+	 * <br/>Draw calls of the shape renderer are added to the render calls of the sprite batch when the phase ends,
+	 * except for flushes the shape renderer does on its own when running out of vertices.
+	 *
+	 * @param shapeRenderer shape renderer to draw with
+	 * @param shapeType shape type
+	 * @param srcFunction source blend function, 0 with <code>destFunction</code> 0 to disable blending
+	 * @param destFunction destination blend function
+	 */
+	public void beginShapes(ShapeRenderer shapeRenderer, ShapeType shapeType, int srcFunction, int destFunction) {
+		if (this.shapeRenderer == shapeRenderer && this.shapeType == shapeType) {
+			if (srcFunction != shapeSrcFunction || destFunction != shapeDestFunction) {
+				countShapeCall();
+				shapeRenderer.flush();
+				applyShapeBlending(srcFunction, destFunction);
+			}
+			return;
+		}
+
+		if (this.shapeRenderer != null) {
+			countShapeCall();
+			this.shapeRenderer.end();
+		}
+		else {
+			resumeBatch = batch.isDrawing();
+			if (resumeBatch) {
+				batch.end();
+			}
+			// beginning the batch again resets its render calls
+			renderCalls = batch.renderCalls;
+		}
+		shapeRenderer.setProjectionMatrix(batch.getProjectionMatrix());
+		shapeRenderer.setTransformMatrix(batch.getTransformMatrix());
+		applyShapeBlending(srcFunction, destFunction);
+		shapeRenderer.begin(shapeType);
+		this.shapeRenderer = shapeRenderer;
+		this.shapeType = shapeType;
+		phaseSwitches++;
+	}
+
+	/**
+	 * Ends the current shape phase, if any, and opens the sprite batch again if it was drawing when the phase started.
+	 * <br/>Thus, the batch is left in the state the caller had it in, e.g. ended after drawing a single shape item outside of a render queue.
+	 */
+	public void endShapes() {
+		if (shapeRenderer != null) {
+			closeShapes();
+			if (resumeBatch) {
+				batch.begin();
+			}
+			batch.renderCalls = renderCalls;
+		}
+	}
+
+	public boolean isDrawingShapes() {
+		return shapeRenderer != null;
+	}
+
+	/**
+	 * Forgets all tracked states.
+	 * <br/>Must be called after the batch state was changed without going through this tracker.
+	 */
+	public void invalidate() {
+		invalidateBlending();
+		shaderKnown = false;
+		colorKnown = false;
+		projectionKnown = false;
+		transformKnown = false;
+	}
+
+	/**
+	 * Forgets the tracked blending state only.
+	 * <br/>While drawing into a layer target, the blend function of the batch is handed back to the tracker,
+	 * since a blend function set on the batch directly would replace the separate alpha function on each flush.
+	 */
+	public void invalidateBlending() {
+		blendingKnown = false;
+		blendFunctionKnown = false;
+		if (targetBlending) {
+			batch.setBlendFunction(-1, -1);
+		}
+	}
+
+	public void enableBlending(int srcFunction, int destFunction) {
+		if (!blendingKnown || !blending) {
+			batch.enableBlending();
+			blending = true;
+			blendingKnown = true;
+			blendSwitches++;
+		}
+		if (!blendFunctionKnown || srcFunction != this.srcFunction || destFunction != this.destFunction) {
+			if (targetBlending) {
+				// the batch leaves the blend function to us while drawing into a target
+				batch.flush();
+				applyBlendFunction(srcFunction, destFunction);
+			}
+			else {
+				batch.setBlendFunction(srcFunction, destFunction);
+			}
+			this.srcFunction = srcFunction;
+			this.destFunction = destFunction;
+			blendFunctionKnown = true;
+			blendSwitches++;
+		}
+	}
+
+	public void disableBlending() {
+		if (!blendingKnown || blending) {
+			batch.disableBlending();
+			blending = false;
+			blendingKnown = true;
+			blendSwitches++;
+		}
+	}
+
+	/**
+	 * Sets the shader used by the batch.
+	 *
+	 * @param shader shader program, null for the default shader
+	 */
+	public void setShader(ShaderProgram shader) {
+		if (!shaderKnown || shader != this.shader) {
+			batch.setShader(shader);
+			this.shader = shader;
+			shaderKnown = true;
+			shaderSwitches++;
+		}
+	}
+
+	/**
+	 * Sets the tint color of the batch.
+	 *
+	 * @param color tint color, null for white
+	 */
+	public void setColor(Color color) {
+		setColor(color != null ? color.toFloatBits() : WHITE);
+	}
+
+	/**
+	 * Sets the tint color of the batch.
+	 *
+	 * @param packedColor tint color packed into a float
+	 */
+	public void setColor(float packedColor) {
+		if (!colorKnown || Float.floatToRawIntBits(packedColor) != Float.floatToRawIntBits(color)) {
+			batch.setColor(packedColor);
+			color = packedColor;
+			colorKnown = true;
+		}
+	}
+
+	public void setProjectionMatrix(Matrix4 projection) {
+		if (!projectionKnown || !Arrays.equals(projection.val, this.projection)) {
+			batch.setProjectionMatrix(projection);
+			System.arraycopy(projection.val, 0, this.projection, 0, 16);
+			projectionKnown = true;
+		}
+	}
+
+	public void setTransformMatrix(Matrix4 transform) {
+		if (!transformKnown || !Arrays.equals(transform.val, this.transform)) {
+			batch.setTransformMatrix(transform);
+			System.arraycopy(transform.val, 0, this.transform, 0, 16);
+			transformKnown = true;
+		}
+	}
+
+	/**
+	 * Returns the total number of blending and blend function changes forwarded to sprite batches.
+	 *
+	 * @return
+	 */
+	public int getBlendSwitches() {
+		return blendSwitches;
+	}
+
+	/**
+	 * Returns the total number of shader changes forwarded to sprite batches.
+	 *
+	 * @return
+	 */
+	public int getShaderSwitches() {
+		return shaderSwitches;
+	}
+
+	/**
+	 * Returns the total number of switches between sprite batch and shape renderers, including shape type changes.
+	 *
+	 * @return
+	 */
+	public int getPhaseSwitches() {
+		return phaseSwitches;
+	}
+
+	/**
+	 * Starts drawing into a layer target, see class comment.
+	 * <br/>The sprite batch must have been flushed.
+	 */
+	void beginTarget() {
+		targetBlending = true;
+		batch.setBlendFunction(-1, -1);
+		invalidateBlending();
+	}
+
+	/**
+	 * Stops drawing into a layer target and hands the blend function back to the sprite batch.
+	 * <br/>The sprite batch must have been flushed.
+	 */
+	void endTarget() {
+		targetBlending = false;
+		batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		invalidateBlending();
+	}
+
+	/**
+	 * Sets the blend function directly on GL, for drawing without the sprite batch.
+	 */
+	void applyBlendFunction(int srcFunction, int destFunction) {
+		if (targetBlending) {
+			Gdx.gl.glBlendFuncSeparate(srcFunction, destFunction, GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		}
+		else {
+			Gdx.gl.glBlendFunc(srcFunction, destFunction);
+		}
+	}
+
+	private void closeShapes() {
+		countShapeCall();
+		shapeRenderer.end();
+		shapeRenderer = null;
+		shapeType = null;
+		phaseSwitches++;
+		if (targetBlending) {
+			// shapes changed the blend function behind the batch
+			blendFunctionKnown = false;
+		}
+	}
+
+	/**
+	 * Counts the draw call issued by flushing or ending the shape renderer as render call of the sprite batch.
+	 */
+	private void countShapeCall() {
+		if (shapeRenderer.getRenderer().getNumVertices() > 0) {
+			renderCalls++;
+		}
+	}
+
+	private void applyShapeBlending(int srcFunction, int destFunction) {
+		if (srcFunction != 0 || destFunction != 0) {
+			Gdx.gl.glEnable(GL20.GL_BLEND);
+			applyBlendFunction(srcFunction, destFunction);
+		}
+		else {
+			Gdx.gl.glDisable(GL20.GL_BLEND);
+		}
+		shapeSrcFunction = srcFunction;
+		shapeDestFunction = destFunction;
+	}
+
+	private static final float WHITE = Color.WHITE.toFloatBits();
+
+	private SpriteBatch batch;
+	private boolean resumeBatch;
+	private long frameId;
+	private boolean targetBlending;
+
+	private boolean blendingKnown;
+	private boolean blending;
+	private boolean blendFunctionKnown;
+	private int srcFunction;
+	private int destFunction;
+
+	private boolean shaderKnown;
+	private ShaderProgram shader;
+
+	private boolean colorKnown;
+	private float color;
+
+	private boolean projectionKnown;
+	private final float[] projection;
+
+	private boolean transformKnown;
+	private final float[] transform;
+
+	private ShapeRenderer shapeRenderer;
+	private ShapeType shapeType;
+	private int shapeSrcFunction;
+	private int shapeDestFunction;
+	private int renderCalls;
+
+	private int blendSwitches;
+	private int shaderSwitches;
+	private int phaseSwitches;
+}
@@ -0,0 +1,363 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.math.WindowedMean;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Render statistics of a batch render queue.
+ * <p/>
+ * All per frame values refer to the last frame completed by {@link BatchRenderQueue#reset()}.
+ * Rolling values are averaged over a window of frames.
+ * <br/>Reading statistics never allocates, so they can be logged in production builds.
+ */
+public class BatchRenderStats {
+	BatchRenderStats(int maxLayers, int windowSize) {
+		layerItems = new int[maxLayers];
+		lastLayerItems = new int[maxLayers];
+		classIndices = new ObjectIntMap<Class>();
+		itemClasses = new Class[0];
+		itemPools = new Pool[0];
+		classItems = new int[0];
+		lastClassItems = new int[0];
+
+		meanSortTime = new WindowedMean(windowSize);
+		meanRenderTime = new WindowedMean(windowSize);
+		meanRenderCalls = new WindowedMean(windowSize);
+		meanItems = new WindowedMean(windowSize);
+		meanTextureSwitches = new WindowedMean(windowSize);
+	}
+
+	/**
+	 * Returns the number of frames completed since statistics were enabled.
+	 *
+	 * @return
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Returns the number of queued items.
+	 *
+	 * @return
+	 */
+	public int getItemCount() {
+		return lastItems;
+	}
+
+	/**
+	 * Returns the number of items queued in the given layer.
+	 *
+	 * @param layer
+	 * @return
+	 */
+	public int getItemCount(int layer) {
+		return lastLayerItems[layer];
+	}
+
+	/**
+	 * Returns the number of queued items of the given type.
+	 *
+	 * @param itemClass registered item class
+	 * @return
+	 */
+	public int getItemCount(Class<? extends BatchRenderItem> itemClass) {
+		int classIndex = classIndices.get(itemClass, -1);
+		return classIndex != -1 ? lastClassItems[classIndex] : 0;
+	}
+
+	/**
+	 * Returns the number of registered item classes.
+	 *
+	 * @return
+	 */
+	public int getItemClassCount() {
+		return itemClasses.length;
+	}
+
+	/**
+	 * Returns the registered item class with the given index.
+	 *
+	 * @param classIndex index between 0 and <code>getItemClassCount() - 1</code>
+	 * @return
+	 */
+	public Class getItemClass(int classIndex) {
+		return itemClasses[classIndex];
+	}
+
+	/**
+	 * Returns the number of queued items of the item class with the given index.
+	 *
+	 * @param classIndex index between 0 and <code>getItemClassCount() - 1</code>
+	 * @return
+	 */
+	public int getClassItemCount(int classIndex) {
+		return lastClassItems[classIndex];
+	}
+
+	/**
+	 * Returns the number of free items in the pool of the item class with the given index.
+	 *
+	 * @param classIndex index between 0 and <code>getItemClassCount() - 1</code>
+	 * @return
+	 */
+	public int getPoolFree(int classIndex) {
+		return itemPools[classIndex].getFree();
+	}
+
+	/**
+	 * Returns the highest number of free items ever held by the pool of the item class with the given index.
+	 *
+	 * @param classIndex index between 0 and <code>getItemClassCount() - 1</code>
+	 * @return
+	 */
+	public int getPoolPeak(int classIndex) {
+		return itemPools[classIndex].peak;
+	}
+
+	/**
+	 * Returns the number of items dropped by culling.
+	 *
+	 * @return
+	 */
+	public int getCulledCount() {
+		return lastCulled;
+	}
+
+	/**
+	 * Returns the time spent sorting.
+	 *
+	 * @return time in ns
+	 */
+	public long getSortTime() {
+		return lastSortTime;
+	}
+
+	/**
+	 * Returns the time spent rendering sorted items, excluding sorting.
+	 *
+	 * @return time in ns
+	 */
+	public long getRenderTime() {
+		return lastRenderTime;
+	}
+
+	/**
+	 * Returns the number of sprite batch render calls issued while rendering.
+	 *
+	 * @return
+	 */
+	public int getRenderCalls() {
+		return lastRenderCalls;
+	}
+
+	/**
+	 * Returns the number of blending or blend function changes forwarded to the sprite batch.
+	 *
+	 * @return
+	 */
+	public int getBlendSwitches() {
+		return lastBlendSwitches;
+	}
+
+	/**
+	 * Returns the number of shader changes forwarded to the sprite batch.
+	 *
+	 * @return
+	 */
+	public int getShaderSwitches() {
+		return lastShaderSwitches;
+	}
+
+	/**
+	 * Returns the number of texture changes between consecutively rendered items.
+	 *
+	 * @return
+	 */
+	public int getTextureSwitches() {
+		return lastTextureSwitches;
+	}
+
+	/**
+	 * Returns the average sort time.
+	 *
+	 * @return time in ns
+	 */
+	public float getMeanSortTime() {
+		return meanSortTime.getMean();
+	}
+
+	/**
+	 * Returns the average render time.
+	 *
+	 * @return time in ns
+	 */
+	public float getMeanRenderTime() {
+		return meanRenderTime.getMean();
+	}
+
+	public float getMeanRenderCalls() {
+		return meanRenderCalls.getMean();
+	}
+
+	public float getMeanItemCount() {
+		return meanItems.getMean();
+	}
+
+	public float getMeanTextureSwitches() {
+		return meanTextureSwitches.getMean();
+	}
+
+	void addItemClass(Class itemClass, Pool pool) {
+		int classIndex = classIndices.get(itemClass, -1);
+		if (classIndex == -1) {
+			classIndex = itemClasses.length;
+			classIndices.put(itemClass, classIndex);
+			itemClasses = Arrays.copyOf(itemClasses, classIndex + 1);
+			itemPools = Arrays.copyOf(itemPools, classIndex + 1);
+			classItems = Arrays.copyOf(classItems, classIndex + 1);
+			lastClassItems = Arrays.copyOf(lastClassItems, classIndex + 1);
+			itemClasses[classIndex] = itemClass;
+		}
+		itemPools[classIndex] = pool;
+	}
+
+	void countItem(BatchRenderItem item, int layer) {
+		// class indices are assigned in the same order as type ids
+		int classIndex = item.getTypeId();
+		if (classIndex < 0 || classIndex >= itemClasses.length || itemClasses[classIndex] != item.getClass()) {
+			classIndex = classIndices.get(item.getClass(), -1);
+		}
+		if (classIndex != -1) {
+			classItems[classIndex]++;
+		}
+		layerItems[layer]++;
+		items++;
+	}
+
+	void countCulled() {
+		culled++;
+	}
+
+	void addSortTime(long sortTime) {
+		this.sortTime += sortTime;
+	}
+
+	void addRenderTime(long renderTime) {
+		this.renderTime += renderTime;
+	}
+
+	void addRenderCalls(int renderCalls) {
+		this.renderCalls += renderCalls;
+	}
+
+	void addBlendSwitches(int blendSwitches) {
+		this.blendSwitches += blendSwitches;
+	}
+
+	void addShaderSwitches(int shaderSwitches) {
+		this.shaderSwitches += shaderSwitches;
+	}
+
+	void addTextureSwitches(int textureSwitches) {
+		this.textureSwitches += textureSwitches;
+	}
+
+	/**
+	 * Completes a frame with the values of the last frame completed by another instance.
+	 */
+	void addFrame(BatchRenderStats completed) {
+		for (int i = itemClasses.length; i < completed.itemClasses.length; i++) {
+			addItemClass(completed.itemClasses[i], completed.itemPools[i]);
+		}
+		System.arraycopy(completed.lastLayerItems, 0, layerItems, 0, layerItems.length);
+		System.arraycopy(completed.lastClassItems, 0, classItems, 0, completed.lastClassItems.length);
+		items = completed.lastItems;
+		culled = completed.lastCulled;
+		sortTime = completed.lastSortTime;
+		renderTime = completed.lastRenderTime;
+		renderCalls = completed.lastRenderCalls;
+		blendSwitches = completed.lastBlendSwitches;
+		shaderSwitches = completed.lastShaderSwitches;
+		textureSwitches = completed.lastTextureSwitches;
+		endFrame();
+	}
+
+	/**
+	 * Publishes the values collected for the current frame and starts collecting the next one.
+	 */
+	void endFrame() {
+		int[] tempLayerItems = lastLayerItems;
+		lastLayerItems = layerItems;
+		layerItems = tempLayerItems;
+		Arrays.fill(layerItems, 0);
+
+		int[] tempClassItems = lastClassItems;
+		lastClassItems = classItems;
+		classItems = tempClassItems;
+		Arrays.fill(classItems, 0);
+
+		lastItems = items;
+		lastCulled = culled;
+		lastSortTime = sortTime;
+		lastRenderTime = renderTime;
+		lastRenderCalls = renderCalls;
+		lastBlendSwitches = blendSwitches;
+		lastShaderSwitches = shaderSwitches;
+		lastTextureSwitches = textureSwitches;
+
+		meanSortTime.addValue(sortTime);
+		meanRenderTime.addValue(renderTime);
+		meanRenderCalls.addValue(renderCalls);
+		meanItems.addValue(items);
+		meanTextureSwitches.addValue(textureSwitches);
+
+		items = 0;
+		culled = 0;
+		sortTime = 0;
+		renderTime = 0;
+		renderCalls = 0;
+		blendSwitches = 0;
+		shaderSwitches = 0;
+		textureSwitches = 0;
+		frames++;
+	}
+
+	private ObjectIntMap<Class> classIndices;
+	private Class[] itemClasses;
+	private Pool[] itemPools;
+
+	private int[] layerItems;
+	private int[] classItems;
+	private int items;
+	private int culled;
+	private long sortTime;
+	private long renderTime;
+	private int renderCalls;
+	private int blendSwitches;
+	private int shaderSwitches;
+	private int textureSwitches;
+
+	private int[] lastLayerItems;
+	private int[] lastClassItems;
+	private int lastItems;
+	private int lastCulled;
+	private long lastSortTime;
+	private long lastRenderTime;
+	private int lastRenderCalls;
+	private int lastBlendSwitches;
+	private int lastShaderSwitches;
+	private int lastTextureSwitches;
+
+	private WindowedMean meanSortTime;
+	private WindowedMean meanRenderTime;
+	private WindowedMean meanRenderCalls;
+	private WindowedMean meanItems;
+	private WindowedMean meanTextureSwitches;
+	private long frames;
+}
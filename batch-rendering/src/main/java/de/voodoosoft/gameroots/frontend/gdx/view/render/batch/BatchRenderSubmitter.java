@@ -0,0 +1,138 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Local sub-queue for submitting batch items from worker threads.
+ * <p/>
+ * Submitters are created by {@link BatchRenderQueue#createSubmitter()}, typically one per work partition.
+ * Obtaining and queueing items works without any locks, items are taken from a local free list
+ * which is refilled in chunks from the shared item pools.
+ * <br/>Before rendering, the render queue merges all submitters in creation order.
+ * Since all sort modes are stable, items with equal sort order are always drawn in the same order,
+ * no matter which worker finished first.
+ * <p/>
+ * A submitter must only be used by one thread at a time and not while its render queue is rendered or reset.
+ */
+public class BatchRenderSubmitter {
+	BatchRenderSubmitter(BatchRenderQueue queue, int id) {
+		this.queue = queue;
+		this.id = id;
+		items = new BatchRenderItem[64];
+		freeItems = new BatchRenderItem[0][];
+		freeCounts = new int[0];
+	}
+
+	/**
+	 * Returns the id of this submitter, submitters are merged in ascending id order.
+	 *
+	 * @return
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns a free batch item of the given item type.
+	 *
+	 * @param itemClass registered item class
+	 * @param <T>
+	 * @return
+	 */
+	public <T extends BatchRenderItem> T obtainItem(Class<T> itemClass) {
+		int typeId = queue.getTypeId(itemClass);
+		if (typeId == -1) {
+			throw new RuntimeException("item class [" + itemClass + "] not defined");
+		}
+		return obtainItem(typeId);
+	}
+
+	/**
+	 * Returns a free batch item of the given item type.
+	 *
+	 * @param typeId type id returned by <code>addItemClass</code>
+	 * @param <T>
+	 * @return
+	 */
+	public <T extends BatchRenderItem> T obtainItem(int typeId) {
+		if (typeId >= freeCounts.length) {
+			freeItems = Arrays.copyOf(freeItems, typeId + 1);
+			freeCounts = Arrays.copyOf(freeCounts, typeId + 1);
+		}
+		if (freeCounts[typeId] == 0) {
+			refill(typeId);
+		}
+
+		BatchRenderItem[] free = freeItems[typeId];
+		int i = --freeCounts[typeId];
+		BatchRenderItem item = free[i];
+		free[i] = null;
+		item.setTypeId(typeId);
+		return (T)item;
+	}
+
+	/**
+	 * Adds a batch item to be drawn during the next call of <code>render</code> of the render queue.
+	 *
+	 * @param item batch item
+	 */
+	public void queueItem(BatchRenderItem item) {
+		if (count == items.length) {
+			items = Arrays.copyOf(items, count * 2);
+		}
+		items[count++] = item;
+	}
+
+	/**
+	 * Returns the number of items submitted since the last merge.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Moves all submitted items to the given render queue.
+	 */
+	void drainTo(BatchRenderQueue queue) {
+		BatchRenderItem[] items = this.items;
+		for (int i = 0; i < count; i++) {
+			queue.queueItem(items[i]);
+			items[i] = null;
+		}
+		count = 0;
+	}
+
+	/**
+	 * Takes a chunk of items from the shared pool, which is locked while doing so.
+	 */
+	private void refill(int typeId) {
+		BatchRenderItem[] free = freeItems[typeId];
+		if (free == null) {
+			free = new BatchRenderItem[REFILL_SIZE];
+			freeItems[typeId] = free;
+		}
+
+		Pool<BatchRenderItem> pool = queue.getPool(typeId);
+		synchronized (pool) {
+			for (int i = 0; i < REFILL_SIZE; i++) {
+				free[i] = pool.obtain();
+			}
+		}
+		freeCounts[typeId] = REFILL_SIZE;
+	}
+
+	private static final int REFILL_SIZE = 64;
+
+	private final BatchRenderQueue queue;
+	private final int id;
+	private BatchRenderItem[] items;
+	private int count;
+	private BatchRenderItem[][] freeItems;
+	private int[] freeCounts;
+}
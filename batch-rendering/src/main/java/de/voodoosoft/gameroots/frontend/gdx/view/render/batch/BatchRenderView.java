@@ -0,0 +1,126 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+
+
+
+/**
+ * One of several views a render queue is drawn to per frame, e.g. for split-screen or a minimap.
+ * <p/>
+ * Each view draws with its own sprite batch, projection and screen area.
+ * Optionally, a view only draws a range of layers and culls items not overlapping its cull rectangle.
+ * <br/>See {@link BatchRenderQueue#render(long, BatchRenderView...)}.
+ */
+public class BatchRenderView {
+	public BatchRenderView(SpriteBatch batch) {
+		this.batch = batch;
+		fromLayer = 0;
+		toLayer = Integer.MAX_VALUE;
+		cullRectangle = new Rectangle();
+	}
+
+	public SpriteBatch getBatch() {
+		return batch;
+	}
+
+	/**
+	 * Sets the projection matrix applied to the sprite batch of this view.
+	 * <br/>The matrix is referenced, not copied, so camera updates apply without calling this method again.
+	 *
+	 * @param projection projection matrix or null to keep the batch projection
+	 */
+	public void setProjectionMatrix(Matrix4 projection) {
+		this.projection = projection;
+	}
+
+	public Matrix4 getProjectionMatrix() {
+		return projection;
+	}
+
+	/**
+	 * Sets the screen area of this view in pixels, applied as GL viewport before drawing.
+	 *
+	 * @param x
+	 * @param y
+	 * @param width width or 0 to keep the current GL viewport
+	 * @param height
+	 */
+	public void setScreenBounds(int x, int y, int width, int height) {
+		screenX = x;
+		screenY = y;
+		screenWidth = width;
+		screenHeight = height;
+	}
+
+	/**
+	 * Restricts this view to a range of layers.
+	 *
+	 * @param fromLayer first layer drawn
+	 * @param toLayer last layer drawn, inclusive
+	 */
+	public void setLayers(int fromLayer, int toLayer) {
+		this.fromLayer = fromLayer;
+		this.toLayer = toLayer;
+	}
+
+	public int getFromLayer() {
+		return fromLayer;
+	}
+
+	public int getToLayer() {
+		return toLayer;
+	}
+
+	/**
+	 * Enables culling items of this view against the given rectangle while rendering.
+	 * <br/>Items without known bounds, sprite streams and cached layers are never culled.
+	 *
+	 * @param cullRectangle cull rectangle, copied, or null to disable culling
+	 */
+	public void setCullRectangle(Rectangle cullRectangle) {
+		if (cullRectangle != null) {
+			this.cullRectangle.set(cullRectangle);
+		}
+		culling = cullRectangle != null;
+	}
+
+	/**
+	 * Returns the cull rectangle of this view.
+	 *
+	 * @return null if culling is disabled
+	 */
+	public Rectangle getCullRectangle() {
+		return culling ? cullRectangle : null;
+	}
+
+	/**
+	 * Applies screen bounds and projection of this view.
+	 */
+	void apply() {
+		applyViewport();
+		if (projection != null) {
+			batch.setProjectionMatrix(projection);
+		}
+	}
+
+	/**
+	 * Applies the screen bounds of this view, if any.
+	 */
+	void applyViewport() {
+		if (screenWidth > 0 && screenHeight > 0) {
+			Gdx.gl.glViewport(screenX, screenY, screenWidth, screenHeight);
+		}
+	}
+
+	private final SpriteBatch batch;
+	private Matrix4 projection;
+	private int screenX, screenY;
+	private int screenWidth, screenHeight;
+	private int fromLayer;
+	private int toLayer;
+	private final Rectangle cullRectangle;
+	private boolean culling;
+}
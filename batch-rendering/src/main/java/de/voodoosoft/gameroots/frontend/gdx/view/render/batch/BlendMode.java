@@ -6,4 +6,15 @@ public interface BlendMode<T extends BlendMode> extends Comparable<T> {
 	int getDestFunction();
 
 	boolean equals(BlendMode<T> other);
+
+	/**
+	 * Returns a small number used as blend mode component of sort keys.
+	 * <br/>Enum based blend modes get this method for free, other implementations share id 0 unless they override it.
+	 * Blend modes sharing an id only cause additional blend switches but never a wrong draw order.
+	 *
+	 * @return
+	 */
+	default int ordinal() {
+		return 0;
+	}
 }
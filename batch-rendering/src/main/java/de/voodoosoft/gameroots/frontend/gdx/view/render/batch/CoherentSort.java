@@ -0,0 +1,187 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Key sort exploiting frame to frame coherence.
+ * <p/>
+ * Most scenes queue the same items in almost the same order each frame.
+ * Applying the sort order of the last frame to the current input therefore yields an almost sorted sequence,
+ * which is finished by an insertion pass in O(n + inversions).
+ * <br/>If the sequence turns out to be too disordered, the insertion pass is aborted and a full radix sort is done instead.
+ * <br/>Like all sort modes, the sort is stable: items with equal keys keep their queue order.
+ * <p/>
+ * Scratch buffers are kept between calls, instances must not be shared between threads.
+ */
+public final class CoherentSort {
+	public CoherentSort(RadixSort radixSort) {
+		this.radixSort = radixSort;
+		this.inversionLimit = 1f;
+	}
+
+	/**
+	 * Sorts the first <code>count</code> keys in ascending unsigned order and applies the same permutation to the items.
+	 *
+	 * @param keys sort keys
+	 * @param items items belonging to the keys
+	 * @param count number of keys and items to sort
+	 * @param order sort order of the last frame, receives the sort order of this frame; must hold at least <code>count</code> elements
+	 * @param lastCount number of items sorted in the last frame, the last order is only reused if it matches <code>count</code>
+	 */
+	public void sort(long[] keys, Object[] items, int count, int[] order, int lastCount) {
+		if (count < 2) {
+			if (count == 1) {
+				order[0] = 0;
+			}
+			return;
+		}
+
+		ensureCapacity(count);
+		long[] sortKeys = this.sortKeys;
+		if (lastCount == count) {
+			for (int i = 0; i < count; i++) {
+				sortKeys[i] = keys[order[i]];
+			}
+			historyHits++;
+		}
+		else {
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			System.arraycopy(keys, 0, sortKeys, 0, count);
+		}
+
+		int maxInversions = (int)(count * inversionLimit);
+		if (insertionSort(sortKeys, order, count, maxInversions)) {
+			insertionSorts++;
+		}
+		else {
+			// start over in queue order, so the stable radix sort keeps equal keys in queue order
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			System.arraycopy(keys, 0, sortKeys, 0, count);
+			radixSort.sortPairs(sortKeys, order, count);
+			fullSorts++;
+		}
+
+		Object[] itemBuffer = this.itemBuffer;
+		for (int i = 0; i < count; i++) {
+			itemBuffer[i] = items[order[i]];
+		}
+		System.arraycopy(itemBuffer, 0, items, 0, count);
+		System.arraycopy(sortKeys, 0, keys, 0, count);
+		Arrays.fill(itemBuffer, 0, count, null);
+	}
+
+	/**
+	 * Specifies how disordered the input may be before falling back to a full sort.
+	 *
+	 * @param inversionLimit maximum number of inversions per item, 1 by default
+	 */
+	public void setInversionLimit(float inversionLimit) {
+		this.inversionLimit = inversionLimit;
+	}
+
+	public float getInversionLimit() {
+		return inversionLimit;
+	}
+
+	/**
+	 * Returns how often the sort order of the last frame could be reused as starting point.
+	 *
+	 * @return
+	 */
+	public long getHistoryHits() {
+		return historyHits;
+	}
+
+	/**
+	 * Returns how often the input was nearly sorted and finished by an insertion pass.
+	 *
+	 * @return
+	 */
+	public long getInsertionSorts() {
+		return insertionSorts;
+	}
+
+	/**
+	 * Returns how often the input was too disordered and had to be sorted from scratch.
+	 *
+	 * @return
+	 */
+	public long getFullSorts() {
+		return fullSorts;
+	}
+
+	public void resetCounters() {
+		historyHits = 0;
+		insertionSorts = 0;
+		fullSorts = 0;
+	}
+
+	/**
+	 * Adds the counters of another instance to this one and resets them there.
+	 */
+	void transferCounters(CoherentSort other) {
+		historyHits += other.historyHits;
+		insertionSorts += other.insertionSorts;
+		fullSorts += other.fullSorts;
+		other.resetCounters();
+	}
+
+	/**
+	 * Insertion sort by key and queue index, giving up after the given number of element moves.
+	 * <br/>Breaking ties by queue index keeps equal keys in queue order, no matter how they were ordered last frame.
+	 *
+	 * @return true if sorting was completed
+	 */
+	private boolean insertionSort(long[] keys, int[] values, int count, int maxInversions) {
+		int inversions = 0;
+		for (int i = 1; i < count; i++) {
+			long key = keys[i];
+			int value = values[i];
+			if (compare(keys[i - 1], values[i - 1], key, value) <= 0) {
+				continue;
+			}
+
+			int j = i - 1;
+			while (j >= 0 && compare(keys[j], values[j], key, value) > 0) {
+				keys[j + 1] = keys[j];
+				values[j + 1] = values[j];
+				j--;
+				inversions++;
+			}
+			keys[j + 1] = key;
+			values[j + 1] = value;
+
+			if (inversions > maxInversions) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int compare(long key1, int index1, long key2, int index2) {
+		int result = Long.compareUnsigned(key1, key2);
+		return result != 0 ? result : Integer.compare(index1, index2);
+	}
+
+	private void ensureCapacity(int count) {
+		if (sortKeys.length < count) {
+			int capacity = Math.max(count, sortKeys.length * 2);
+			sortKeys = new long[capacity];
+			itemBuffer = new Object[capacity];
+		}
+	}
+
+	private final RadixSort radixSort;
+	private float inversionLimit;
+	private long[] sortKeys = new long[0];
+	private Object[] itemBuffer = new Object[0];
+	private long historyHits;
+	private long insertionSorts;
+	private long fullSorts;
+}
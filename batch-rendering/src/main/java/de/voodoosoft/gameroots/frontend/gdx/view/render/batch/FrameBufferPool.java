@@ -0,0 +1,121 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.LongMap;
+
+
+
+/**
+ * Pool of frame buffers, keyed by size, pixel format and depth attachment.
+ * <p/>
+ * Obtaining a frame buffer reuses a free one of the same key if available (a hit), otherwise a new one is created (a miss).
+ * Frame buffers freed to the pool stay allocated until the pool is disposed or <code>clear</code> is called.
+ */
+public class FrameBufferPool implements Disposable {
+	public FrameBufferPool() {
+		freeBuffers = new LongMap<Array<FrameBuffer>>();
+		bufferKeys = new IdentityMap<FrameBuffer, Long>();
+	}
+
+	/**
+	 * Returns a free frame buffer with the given properties, creating a new one if there is none.
+	 *
+	 * @param format pixel format
+	 * @param width width in pixels, up to 65535
+	 * @param height height in pixels, up to 65535
+	 * @param hasDepth true for a depth attachment
+	 * @return frame buffer to be returned by <code>free</code>
+	 */
+	public FrameBuffer obtain(Pixmap.Format format, int width, int height, boolean hasDepth) {
+		if (width <= 0 || height <= 0 || width > 0xffff || height > 0xffff) {
+			throw new IllegalArgumentException("invalid frame buffer size " + width + "x" + height);
+		}
+
+		long key = key(format, width, height, hasDepth);
+		Array<FrameBuffer> buffers = freeBuffers.get(key);
+		if (buffers != null && buffers.size > 0) {
+			hits++;
+			return buffers.pop();
+		}
+		misses++;
+		FrameBuffer frameBuffer = new FrameBuffer(format, width, height, hasDepth);
+		bufferKeys.put(frameBuffer, key);
+		return frameBuffer;
+	}
+
+	/**
+	 * Returns a frame buffer obtained from this pool.
+	 *
+	 * @param frameBuffer frame buffer, ignored if null
+	 */
+	public void free(FrameBuffer frameBuffer) {
+		if (frameBuffer == null) {
+			return;
+		}
+
+		Long key = bufferKeys.get(frameBuffer);
+		if (key == null) {
+			throw new IllegalArgumentException("frame buffer not obtained from this pool");
+		}
+		Array<FrameBuffer> buffers = freeBuffers.get(key);
+		if (buffers == null) {
+			buffers = new Array<FrameBuffer>(false, 2);
+			freeBuffers.put(key, buffers);
+		}
+		buffers.add(frameBuffer);
+	}
+
+	/**
+	 * Returns the number of frame buffers reused since creation or the last <code>resetCounters</code>.
+	 *
+	 * @return
+	 */
+	public int getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of frame buffers created since creation or the last <code>resetCounters</code>.
+	 *
+	 * @return
+	 */
+	public int getMissCount() {
+		return misses;
+	}
+
+	public void resetCounters() {
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Disposes all free frame buffers. Frame buffers currently obtained are not affected.
+	 */
+	public void clear() {
+		for (Array<FrameBuffer> buffers : freeBuffers.values()) {
+			for (FrameBuffer buffer : buffers) {
+				bufferKeys.remove(buffer);
+				buffer.dispose();
+			}
+		}
+		freeBuffers.clear();
+	}
+
+	@Override
+	public void dispose() {
+		clear();
+	}
+
+	private static long key(Pixmap.Format format, int width, int height, boolean hasDepth) {
+		return ((long)format.ordinal() << 33) | ((long)(hasDepth ? 1 : 0) << 32) | ((long)width << 16) | height;
+	}
+
+	private final LongMap<Array<FrameBuffer>> freeBuffers;
+	private final IdentityMap<FrameBuffer, Long> bufferKeys;
+	private int hits;
+	private int misses;
+}
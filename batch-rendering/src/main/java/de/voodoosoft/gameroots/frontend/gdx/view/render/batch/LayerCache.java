@@ -0,0 +1,168 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.BufferOverflowException;
+import java.util.Arrays;
+
+
+
+/**
+ * Static geometry of a cached render queue layer.
+ * <p/>
+ * While recording, items add their geometry to a sprite cache, see {@link BatchRenderItem#cache(LayerCache)}.
+ * Consecutive items sharing the same blend function and shader form a segment,
+ * replaying a layer costs one sprite cache draw per segment, no matter how many items it holds.
+ */
+public class LayerCache implements Disposable {
+	LayerCache(int maxSprites) {
+		this.maxSprites = maxSprites;
+		cacheIds = new int[4];
+		blending = new boolean[4];
+		srcFunctions = new int[4];
+		destFunctions = new int[4];
+		shaders = new ShaderProgram[4];
+	}
+
+	/**
+	 * Returns the sprite cache receiving the geometry of the recorded items.
+	 *
+	 * @return
+	 */
+	public SpriteCache getSpriteCache() {
+		return spriteCache;
+	}
+
+	/**
+	 * Specifies the render state of the following geometry, starting a new segment if it differs from the current one.
+	 * <br/>Must be called by each item before adding geometry.
+	 *
+	 * @param blendMode blend mode or null for no blending
+	 * @param shader shader program or null for the default shader
+	 */
+	public void setState(BlendMode blendMode, ShaderProgram shader) {
+		boolean blend = blendMode != null && (blendMode.getSrcFunction() != 0 || blendMode.getDestFunction() != 0);
+		int srcFunction = blend ? blendMode.getSrcFunction() : 0;
+		int destFunction = blend ? blendMode.getDestFunction() : 0;
+		if (segmentOpen) {
+			int s = segmentCount - 1;
+			if (blending[s] == blend && srcFunctions[s] == srcFunction && destFunctions[s] == destFunction && shaders[s] == shader) {
+				return;
+			}
+			cacheIds[s] = spriteCache.endCache();
+		}
+
+		if (segmentCount == cacheIds.length) {
+			int capacity = segmentCount * 2;
+			cacheIds = Arrays.copyOf(cacheIds, capacity);
+			blending = Arrays.copyOf(blending, capacity);
+			srcFunctions = Arrays.copyOf(srcFunctions, capacity);
+			destFunctions = Arrays.copyOf(destFunctions, capacity);
+			shaders = Arrays.copyOf(shaders, capacity);
+		}
+		int s = segmentCount++;
+		blending[s] = blend;
+		srcFunctions[s] = srcFunction;
+		destFunctions[s] = destFunction;
+		shaders[s] = shader;
+		spriteCache.beginCache();
+		segmentOpen = true;
+	}
+
+	/**
+	 * Records the geometry of the given items.
+	 *
+	 * @return false if an item could not be cached or the sprite cache was too small
+	 */
+	boolean record(BatchRenderItem[] items, int count) {
+		if (spriteCache == null) {
+			spriteCache = new SpriteCache(maxSprites, true);
+		}
+		clear();
+
+		boolean recorded = true;
+		try {
+			for (int i = 0; i < count && recorded; i++) {
+				recorded = items[i].cache(this);
+			}
+		}
+		catch (BufferOverflowException e) {
+			recorded = false;
+		}
+
+		if (segmentOpen) {
+			cacheIds[segmentCount - 1] = spriteCache.endCache();
+			segmentOpen = false;
+		}
+		if (!recorded) {
+			clear();
+		}
+		return recorded;
+	}
+
+	/**
+	 * Draws all segments.
+	 * <br/>The sprite batch is closed while drawing and opened again afterwards, its render call counter is kept up to date.
+	 */
+	void draw(BatchRenderState state) {
+		SpriteBatch batch = state.getBatch();
+		int renderCalls = batch.renderCalls;
+		batch.end();
+
+		spriteCache.setProjectionMatrix(batch.getProjectionMatrix());
+		spriteCache.setTransformMatrix(batch.getTransformMatrix());
+		for (int s = 0; s < segmentCount; s++) {
+			if (blending[s]) {
+				Gdx.gl.glEnable(GL20.GL_BLEND);
+				state.applyBlendFunction(srcFunctions[s], destFunctions[s]);
+			}
+			else {
+				Gdx.gl.glDisable(GL20.GL_BLEND);
+			}
+			spriteCache.setShader(shaders[s]);
+			spriteCache.begin();
+			spriteCache.draw(cacheIds[s]);
+			spriteCache.end();
+			renderCalls += spriteCache.renderCalls;
+		}
+
+		batch.begin();
+		batch.renderCalls = renderCalls;
+	}
+
+	int getSegmentCount() {
+		return segmentCount;
+	}
+
+	private void clear() {
+		spriteCache.clear();
+		Arrays.fill(shaders, null);
+		segmentCount = 0;
+		segmentOpen = false;
+	}
+
+	@Override
+	public void dispose() {
+		if (spriteCache != null) {
+			spriteCache.dispose();
+			spriteCache = null;
+		}
+	}
+
+	private final int maxSprites;
+	private SpriteCache spriteCache;
+	private int[] cacheIds;
+	private boolean[] blending;
+	private int[] srcFunctions;
+	private int[] destFunctions;
+	private ShaderProgram[] shaders;
+	private int segmentCount;
+	private boolean segmentOpen;
+	boolean valid;
+	boolean uncacheable;
+}
@@ -0,0 +1,67 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.utils.Sort;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Sorters and scratch buffers for sorting render layers on one thread.
+ */
+final class LayerSorter {
+	LayerSorter() {
+		sort = new Sort();
+		radixSort = new RadixSort();
+		coherentSort = new CoherentSort(radixSort);
+		keyBuffer = new long[0];
+		itemBuffer = new Object[0];
+	}
+
+	/**
+	 * Sorts all items of the given layer and marks it as sorted.
+	 */
+	void sort(RenderLayer layer, SortMode sortMode) {
+		int itemCount = layer.count;
+		if (sortMode == SortMode.COMPARATOR) {
+			sort.sort(layer.items, 0, itemCount);
+		}
+		else if (sortMode == SortMode.RADIX) {
+			radixSort.sort(layer.keys, layer.items, itemCount);
+		}
+		else {
+			int[] order = layer.getOrder();
+			coherentSort.sort(layer.keys, layer.items, itemCount, order, layer.lastSortCount);
+			layer.lastSortCount = itemCount;
+		}
+		layer.sorted = true;
+	}
+
+	/**
+	 * Sorts the given range of items, by their keys if <code>keys</code> is not null.
+	 */
+	void sortRange(long[] keys, Object[] items, int from, int to) {
+		if (keys == null) {
+			sort.sort(items, from, to);
+			return;
+		}
+
+		int count = to - from;
+		if (keyBuffer.length < count) {
+			keyBuffer = new long[count];
+			itemBuffer = new Object[count];
+		}
+		System.arraycopy(keys, from, keyBuffer, 0, count);
+		System.arraycopy(items, from, itemBuffer, 0, count);
+		radixSort.sort(keyBuffer, itemBuffer, count);
+		System.arraycopy(keyBuffer, 0, keys, from, count);
+		System.arraycopy(itemBuffer, 0, items, from, count);
+		Arrays.fill(itemBuffer, 0, count, null);
+	}
+
+	final Sort sort;
+	final RadixSort radixSort;
+	final CoherentSort coherentSort;
+	private long[] keyBuffer;
+	private Object[] itemBuffer;
+}
@@ -0,0 +1,117 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+
+
+
+/**
+ * Offscreen render target of a range of render queue layers, see {@link BatchRenderQueue#addLayerTarget}.
+ * <p/>
+ * The layers are drawn into a pooled frame buffer covering a fixed area in world coordinates,
+ * which is then composited as a single quad with premultiplied alpha blending.
+ * The frame buffer is only redrawn when the target was invalidated, retained items of its layers changed
+ * or transient items were queued into its layers, otherwise the previous content is reused.
+ * Once transient items are no longer queued, the frame buffer is redrawn one more time to clear them.
+ */
+public class LayerTarget {
+	LayerTarget(int fromLayer, int toLayer, Rectangle area, int width, int height, Pixmap.Format format) {
+		this.fromLayer = fromLayer;
+		this.toLayer = toLayer;
+		this.area = new Rectangle(area);
+		this.width = width;
+		this.height = height;
+		this.format = format;
+		projection = new Matrix4().setToOrtho2D(area.x, area.y, area.width, area.height);
+	}
+
+	public int getFromLayer() {
+		return fromLayer;
+	}
+
+	public int getToLayer() {
+		return toLayer;
+	}
+
+	/**
+	 * Returns the area covered by this target in world coordinates.
+	 *
+	 * @return
+	 */
+	public Rectangle getArea() {
+		return area;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the frame buffer holding the drawn layers.
+	 *
+	 * @return null until first drawn
+	 */
+	public FrameBuffer getFrameBuffer() {
+		return frameBuffer;
+	}
+
+	/**
+	 * Returns true if the next <code>render</code> reuses the current frame buffer content,
+	 * unless transient items are queued into the layers of this target.
+	 *
+	 * @return
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Forces the layers of this target to be drawn again by the next <code>render</code>.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Returns how often the frame buffer content was reused since creation or the last <code>resetCounters</code>.
+	 *
+	 * @return
+	 */
+	public int getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns how often the layers were drawn again since creation or the last <code>resetCounters</code>.
+	 *
+	 * @return
+	 */
+	public int getMissCount() {
+		return misses;
+	}
+
+	public void resetCounters() {
+		hits = 0;
+		misses = 0;
+	}
+
+	final int fromLayer;
+	final int toLayer;
+	final Rectangle area;
+	final int width;
+	final int height;
+	final Pixmap.Format format;
+	final Matrix4 projection;
+	FrameBuffer frameBuffer;
+	boolean valid;
+	boolean transientContent;
+	long frameId;
+	int hits;
+	int misses;
+}
@@ -0,0 +1,23 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+
+
+/**
+ * Hook compositing stage lighting between the pre and post lighting items of a render queue,
+ * see {@link BatchRenderQueue#setLightingPass(LightingPass)}.
+ */
+public interface LightingPass {
+	/**
+	 * Applies stage lighting on top of everything drawn so far.
+	 * <p/>
+	 * The sprite batch is drawing when called and all pending sprites are flushed.
+	 * Implementations may end the batch, e.g. for rendering a light map, but must begin it again before returning.
+	 * Batch state like shader, color and blending need not be restored.
+	 *
+	 * @param batch sprite batch of the render queue
+	 * @param time current time in ns
+	 */
+	void render(SpriteBatch batch, long time);
+}
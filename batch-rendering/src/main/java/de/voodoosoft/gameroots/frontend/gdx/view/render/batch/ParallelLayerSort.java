@@ -0,0 +1,112 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+
+
+/**
+ * Stable parallel merge sort of a single large render layer.
+ * <p/>
+ * The layer is split into ranges sorted by separate sorters, sorted ranges are then merged pairwise.
+ * Items are compared by their sort keys or, if there are none, by <code>compareTo</code>.
+ * <br/>The root task marks the layer as sorted when done.
+ */
+final class ParallelLayerSort extends RecursiveAction {
+	ParallelLayerSort(BatchRenderQueue queue, RenderLayer layer, boolean byKeys, int leafSize) {
+		this(queue, byKeys ? layer.keys : null, layer.items, layer.getKeyBuffer(byKeys), layer.getItemBuffer(), 0, layer.count, leafSize);
+		this.layer = layer;
+	}
+
+	private ParallelLayerSort(BatchRenderQueue queue, long[] keys, Object[] items, long[] keyBuffer, Object[] itemBuffer,
+			int from, int to, int leafSize) {
+		this.queue = queue;
+		this.keys = keys;
+		this.items = items;
+		this.keyBuffer = keyBuffer;
+		this.itemBuffer = itemBuffer;
+		this.from = from;
+		this.to = to;
+		this.leafSize = leafSize;
+	}
+
+	@Override
+	protected void compute() {
+		sort();
+		if (layer != null) {
+			layer.sorted = true;
+		}
+	}
+
+	private void sort() {
+		if (to - from <= leafSize) {
+			LayerSorter sorter = queue.obtainSorter();
+			try {
+				sorter.sortRange(keys, items, from, to);
+			}
+			finally {
+				queue.freeSorter(sorter);
+			}
+			return;
+		}
+
+		int mid = (from + to) >>> 1;
+		invokeAll(new ParallelLayerSort(queue, keys, items, keyBuffer, itemBuffer, from, mid, leafSize),
+				new ParallelLayerSort(queue, keys, items, keyBuffer, itemBuffer, mid, to, leafSize));
+		merge(mid);
+	}
+
+	private void merge(int mid) {
+		if (compare(items, keys, mid - 1, mid) <= 0) {
+			// ranges are already in order
+			return;
+		}
+
+		if (keys != null) {
+			System.arraycopy(keys, from, keyBuffer, from, to - from);
+		}
+		System.arraycopy(items, from, itemBuffer, from, to - from);
+
+		int i = from;
+		int j = mid;
+		int k = from;
+		while (i < mid && j < to) {
+			// taking the left item on ties keeps the sort stable
+			int src = compare(itemBuffer, keyBuffer, i, j) <= 0 ? i++ : j++;
+			if (keys != null) {
+				keys[k] = keyBuffer[src];
+			}
+			items[k++] = itemBuffer[src];
+		}
+		while (i < mid) {
+			if (keys != null) {
+				keys[k] = keyBuffer[i];
+			}
+			items[k++] = itemBuffer[i++];
+		}
+		while (j < to) {
+			if (keys != null) {
+				keys[k] = keyBuffer[j];
+			}
+			items[k++] = itemBuffer[j++];
+		}
+		Arrays.fill(itemBuffer, from, to, null);
+	}
+
+	private int compare(Object[] items, long[] keys, int i, int j) {
+		if (this.keys != null) {
+			return Long.compareUnsigned(keys[i], keys[j]);
+		}
+		return ((BatchRenderItem)items[i]).compareTo((BatchRenderItem)items[j]);
+	}
+
+	private final BatchRenderQueue queue;
+	private final long[] keys;
+	private final Object[] items;
+	private final long[] keyBuffer;
+	private final Object[] itemBuffer;
+	private final int from;
+	private final int to;
+	private final int leafSize;
+	private RenderLayer layer;
+}
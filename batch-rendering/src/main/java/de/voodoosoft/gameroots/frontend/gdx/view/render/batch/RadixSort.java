@@ -0,0 +1,171 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Stable LSD radix sort for items with unsigned <code>long</code> sort keys.
+ * <p/>
+ * Keys are sorted together with an index array, items are permuted only once at the end.
+ * Byte positions holding the same value for all keys are skipped, so typically only a few passes are needed.
+ * <br/>Scratch buffers are kept between calls, instances must not be shared between threads.
+ */
+public final class RadixSort {
+	/**
+	 * Sorts the first <code>count</code> keys in ascending unsigned order and applies the same permutation to the items.
+	 *
+	 * @param keys sort keys
+	 * @param items items belonging to the keys
+	 * @param count number of keys and items to sort
+	 */
+	public void sort(long[] keys, Object[] items, int count) {
+		if (count < 2) {
+			return;
+		}
+		if (count <= INSERTION_SORT_THRESHOLD) {
+			insertionSort(keys, items, count);
+			return;
+		}
+
+		ensureCapacity(count);
+		int[] indices = this.indices;
+		for (int i = 0; i < count; i++) {
+			indices[i] = i;
+		}
+		if (!sortPairs(keys, indices, count)) {
+			return;
+		}
+
+		Object[] itemBuffer = this.itemBuffer;
+		for (int i = 0; i < count; i++) {
+			itemBuffer[i] = items[indices[i]];
+		}
+		System.arraycopy(itemBuffer, 0, items, 0, count);
+		Arrays.fill(itemBuffer, 0, count, null);
+	}
+
+	/**
+	 * Sorts the first <code>count</code> keys in ascending unsigned order and moves the values along with their keys.
+	 *
+	 * @param keys sort keys
+	 * @param values values belonging to the keys, typically item indices
+	 * @param count number of keys and values to sort
+	 * @return false if the keys were already sorted and nothing was moved
+	 */
+	public boolean sortPairs(long[] keys, int[] values, int count) {
+		if (count < 2) {
+			return false;
+		}
+		if (count <= INSERTION_SORT_THRESHOLD) {
+			return insertionSort(keys, values, count);
+		}
+
+		ensureCapacity(count);
+		int[] histogram = this.histogram;
+		Arrays.fill(histogram, 0);
+		for (int i = 0; i < count; i++) {
+			long key = keys[i];
+			for (int pass = 0; pass < PASSES; pass++) {
+				histogram[(pass << 8) + (int)((key >>> (pass << 3)) & 0xff)]++;
+			}
+		}
+
+		long[] srcKeys = keys;
+		long[] dstKeys = keyBuffer;
+		int[] srcValues = values;
+		int[] dstValues = valueBuffer;
+
+		boolean moved = false;
+		for (int pass = 0; pass < PASSES; pass++) {
+			int offset = pass << 8;
+			int shift = pass << 3;
+			if (histogram[offset + (int)((keys[0] >>> shift) & 0xff)] == count) {
+				// all keys share this byte
+				continue;
+			}
+
+			int sum = 0;
+			for (int b = 0; b < 256; b++) {
+				int c = histogram[offset + b];
+				histogram[offset + b] = sum;
+				sum += c;
+			}
+			for (int i = 0; i < count; i++) {
+				long key = srcKeys[i];
+				int pos = histogram[offset + (int)((key >>> shift) & 0xff)]++;
+				dstKeys[pos] = key;
+				dstValues[pos] = srcValues[i];
+			}
+
+			long[] tempKeys = srcKeys;
+			srcKeys = dstKeys;
+			dstKeys = tempKeys;
+			int[] tempValues = srcValues;
+			srcValues = dstValues;
+			dstValues = tempValues;
+			moved = true;
+		}
+
+		if (srcKeys != keys) {
+			System.arraycopy(srcKeys, 0, keys, 0, count);
+			System.arraycopy(srcValues, 0, values, 0, count);
+		}
+
+		return moved;
+	}
+
+	private void insertionSort(long[] keys, Object[] items, int count) {
+		for (int i = 1; i < count; i++) {
+			long key = keys[i];
+			Object item = items[i];
+			int j = i - 1;
+			while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+				keys[j + 1] = keys[j];
+				items[j + 1] = items[j];
+				j--;
+			}
+			keys[j + 1] = key;
+			items[j + 1] = item;
+		}
+	}
+
+	private boolean insertionSort(long[] keys, int[] values, int count) {
+		boolean moved = false;
+		for (int i = 1; i < count; i++) {
+			long key = keys[i];
+			int value = values[i];
+			int j = i - 1;
+			while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+				keys[j + 1] = keys[j];
+				values[j + 1] = values[j];
+				j--;
+			}
+			if (j != i - 1) {
+				keys[j + 1] = key;
+				values[j + 1] = value;
+				moved = true;
+			}
+		}
+		return moved;
+	}
+
+	private void ensureCapacity(int count) {
+		if (keyBuffer.length < count) {
+			int capacity = Math.max(count, keyBuffer.length * 2);
+			keyBuffer = new long[capacity];
+			indices = new int[capacity];
+			valueBuffer = new int[capacity];
+			itemBuffer = new Object[capacity];
+		}
+	}
+
+	private static final int PASSES = 8;
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	private final int[] histogram = new int[PASSES * 256];
+	private long[] keyBuffer = new long[0];
+	private int[] indices = new int[0];
+	private int[] valueBuffer = new int[0];
+	private Object[] itemBuffer = new Object[0];
+}
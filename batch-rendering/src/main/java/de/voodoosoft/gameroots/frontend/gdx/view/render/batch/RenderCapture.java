@@ -0,0 +1,330 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+
+
+/**
+ * Ring buffer recording the items drawn by a render queue over the last frames, see {@link BatchRenderQueue#setRenderCapture}.
+ * <p/>
+ * Each drawn item is stored in draw order as a fixed size binary record:
+ * <pre>
+ * | type id 2 | layer 2 | depth 4 | sort key 8 | x 4 | y 4 | width 4 | height 4 |
+ * </pre>
+ * The sort key holds the blend mode, shader and texture ids, bounds are those reported by {@link BatchRenderItem#getBounds}
+ * or a width of -1 if unknown.
+ * Once the ring is full, the oldest frames are overwritten. Recording does not allocate.
+ * <br/>Items are recorded once per frame in the order of the first view drawing their layer, including items outside of the view.
+ * Item colors are not recorded, since batch items do not expose them, replays draw all items untinted.
+ * <p/>
+ * <code>dump</code> writes all captured frames to a memory mapped file, which may be loaded again for replaying
+ * the frames offline, e.g. by the <code>CaptureReplay</code> tool of the benchmarks module.
+ * <br/>File layout, big endian: magic, version, type count, type class names (length prefixed UTF-8),
+ * frame count, per frame its number and item count, followed by the records of all frames.
+ * <br/>Items of sprite streams and of cached layers are not captured.
+ */
+public class RenderCapture {
+	public static final int MAGIC = 0x42524351;
+	public static final int VERSION = 1;
+	public static final int RECORD_SIZE = 32;
+
+	/**
+	 * Creates a new capture ring buffer.
+	 *
+	 * @param maxFrames maximal number of frames kept
+	 * @param maxItems maximal number of items kept over all frames
+	 */
+	public RenderCapture(int maxFrames, int maxItems) {
+		if (maxFrames <= 0 || maxItems <= 0) {
+			throw new IllegalArgumentException("max frames and max items must be > 0");
+		}
+
+		records = ByteBuffer.allocate(maxItems * RECORD_SIZE);
+		this.maxItems = maxItems;
+		frameNumbers = new long[maxFrames];
+		frameStarts = new long[maxFrames];
+		frameCounts = new int[maxFrames];
+		typeNames = new String[0];
+		bounds = new Rectangle();
+	}
+
+	/**
+	 * Loads frames written by <code>dump</code>.
+	 *
+	 * @param file capture file
+	 * @return capture holding all frames of the file
+	 */
+	public static RenderCapture load(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("not a render capture: " + file);
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported render capture version " + version);
+			}
+
+			String[] typeNames = new String[buffer.getInt()];
+			for (int t = 0; t < typeNames.length; t++) {
+				byte[] name = new byte[buffer.getShort()];
+				buffer.get(name);
+				typeNames[t] = new String(name, StandardCharsets.UTF_8);
+			}
+
+			int frameCount = buffer.getInt();
+			long[] frameNumbers = new long[frameCount];
+			int[] frameCounts = new int[frameCount];
+			int itemCount = 0;
+			for (int f = 0; f < frameCount; f++) {
+				frameNumbers[f] = buffer.getLong();
+				frameCounts[f] = buffer.getInt();
+				itemCount += frameCounts[f];
+			}
+
+			RenderCapture capture = new RenderCapture(Math.max(frameCount, 1), Math.max(itemCount, 1));
+			capture.typeNames = typeNames;
+			buffer.limit(buffer.position() + itemCount * RECORD_SIZE);
+			capture.records.put(buffer);
+			long start = 0;
+			for (int f = 0; f < frameCount; f++) {
+				capture.frameNumbers[f] = frameNumbers[f];
+				capture.frameStarts[f] = start;
+				capture.frameCounts[f] = frameCounts[f];
+				start += frameCounts[f];
+			}
+			capture.frameCount = frameCount;
+			capture.written = itemCount;
+			capture.frames = frameCount;
+			return capture;
+		}
+	}
+
+	/**
+	 * Writes all captured frames to the given file, oldest frame first.
+	 *
+	 * @param file target file, replaced if it exists
+	 */
+	public void dump(File file) throws IOException {
+		dropOverwrittenFrames();
+		byte[][] names = new byte[typeNames.length][];
+		long size = 3 * 4 + 4 + frameCount * (8 + 4);
+		int itemCount = 0;
+		for (int t = 0; t < names.length; t++) {
+			names[t] = (typeNames[t] != null ? typeNames[t] : "").getBytes(StandardCharsets.UTF_8);
+			size += 2 + names[t].length;
+		}
+		for (int f = 0; f < frameCount; f++) {
+			itemCount += frameCounts[frameIndex(f)];
+		}
+		size += (long)itemCount * RECORD_SIZE;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(names.length);
+			for (byte[] name : names) {
+				buffer.putShort((short)name.length);
+				buffer.put(name);
+			}
+			buffer.putInt(frameCount);
+			for (int f = 0; f < frameCount; f++) {
+				int frame = frameIndex(f);
+				buffer.putLong(frameNumbers[frame]);
+				buffer.putInt(frameCounts[frame]);
+			}
+			if (itemCount > 0) {
+				// records of consecutive frames are contiguous, apart from wrapping around the end of the ring
+				int start = recordOffset(frameStarts[firstFrame]);
+				int length = itemCount * RECORD_SIZE;
+				int tail = Math.min(length, records.capacity() - start);
+				ByteBuffer source = records.duplicate();
+				source.limit(start + tail);
+				source.position(start);
+				buffer.put(source);
+				source.limit(length - tail);
+				source.position(0);
+				buffer.put(source);
+			}
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Discards all captured frames.
+	 */
+	public void clear() {
+		frameCount = 0;
+		frameOpen = false;
+	}
+
+	/**
+	 * Returns the number of complete frames currently held.
+	 *
+	 * @return
+	 */
+	public int getFrameCount() {
+		dropOverwrittenFrames();
+		return frameCount;
+	}
+
+	/**
+	 * Returns the number of the given frame, counted since this capture was created.
+	 *
+	 * @param frame frame index, 0 being the oldest frame held
+	 * @return
+	 */
+	public long getFrameNumber(int frame) {
+		return frameNumbers[frameIndex(frame)];
+	}
+
+	/**
+	 * Returns the number of items drawn in the given frame.
+	 *
+	 * @param frame frame index, 0 being the oldest frame held
+	 * @return
+	 */
+	public int getItemCount(int frame) {
+		return frameCounts[frameIndex(frame)];
+	}
+
+	/**
+	 * Returns the class name of the given item type id, as registered at the render queue.
+	 *
+	 * @param typeId item type id
+	 * @return class name or null if unknown
+	 */
+	public String getTypeName(int typeId) {
+		return typeId >= 0 && typeId < typeNames.length ? typeNames[typeId] : null;
+	}
+
+	public int getTypeId(int frame, int item) {
+		return records.getShort(offset(frame, item));
+	}
+
+	public int getLayer(int frame, int item) {
+		return records.getShort(offset(frame, item) + 2);
+	}
+
+	public float getDepth(int frame, int item) {
+		return records.getFloat(offset(frame, item) + 4);
+	}
+
+	public long getSortKey(int frame, int item) {
+		return records.getLong(offset(frame, item) + 8);
+	}
+
+	/**
+	 * Returns the bounds of a captured item.
+	 *
+	 * @param bounds receives the bounds
+	 * @return false if the item did not report bounds
+	 */
+	public boolean getBounds(int frame, int item, Rectangle bounds) {
+		int offset = offset(frame, item);
+		bounds.set(records.getFloat(offset + 16), records.getFloat(offset + 20), records.getFloat(offset + 24), records.getFloat(offset + 28));
+		return bounds.width != -1;
+	}
+
+	void beginFrame(Class[] typeClasses) {
+		if (typeNames.length != typeClasses.length) {
+			typeNames = new String[typeClasses.length];
+			for (int t = 0; t < typeClasses.length; t++) {
+				typeNames[t] = typeClasses[t].getName();
+			}
+		}
+
+		if (frameCount == frameNumbers.length) {
+			firstFrame = (firstFrame + 1) % frameNumbers.length;
+			frameCount--;
+		}
+		openFrame = frameIndex(frameCount);
+		frameNumbers[openFrame] = frames;
+		frameStarts[openFrame] = written;
+		frameCounts[openFrame] = 0;
+		frameOpen = true;
+	}
+
+	boolean isFrameOpen() {
+		return frameOpen;
+	}
+
+	void record(BatchRenderItem item, long key) {
+		if (frameCounts[openFrame] == maxItems) {
+			// frame larger than the whole ring, keep its first items only
+			return;
+		}
+
+		int offset = recordOffset(written++);
+		frameCounts[openFrame]++;
+		ByteBuffer records = this.records;
+		records.putShort(offset, (short)item.getTypeId());
+		records.putShort(offset + 2, (short)item.getLayer());
+		records.putFloat(offset + 4, item.getDepth());
+		records.putLong(offset + 8, key);
+		Rectangle bounds = this.bounds;
+		if (!item.getBounds(bounds)) {
+			bounds.set(0, 0, -1, -1);
+		}
+		records.putFloat(offset + 16, bounds.x);
+		records.putFloat(offset + 20, bounds.y);
+		records.putFloat(offset + 24, bounds.width);
+		records.putFloat(offset + 28, bounds.height);
+	}
+
+	void endFrame() {
+		if (!frameOpen) {
+			return;
+		}
+		frameOpen = false;
+		frameCount++;
+		frames++;
+		dropOverwrittenFrames();
+	}
+
+	/**
+	 * Drops the oldest frames whose records were overwritten by newer frames.
+	 */
+	private void dropOverwrittenFrames() {
+		while (frameCount > 0 && frameStarts[firstFrame] < written - maxItems) {
+			firstFrame = (firstFrame + 1) % frameNumbers.length;
+			frameCount--;
+		}
+	}
+
+	private int frameIndex(int frame) {
+		return (firstFrame + frame) % frameNumbers.length;
+	}
+
+	private int offset(int frame, int item) {
+		return recordOffset(frameStarts[frameIndex(frame)] + item);
+	}
+
+	private int recordOffset(long record) {
+		return (int)(record % maxItems) * RECORD_SIZE;
+	}
+
+	private final ByteBuffer records;
+	private final int maxItems;
+	private final long[] frameNumbers;
+	private final long[] frameStarts;
+	private final int[] frameCounts;
+	private final Rectangle bounds;
+	private String[] typeNames;
+	private int firstFrame;
+	private int frameCount;
+	private int openFrame;
+	private boolean frameOpen;
+	private long written;
+	private long frames;
+}
@@ -0,0 +1,107 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Items of a single render queue layer.
+ * <p/>
+ * Layers are allocated lazily when the first item is queued and may be shrunk or released again
+ * after their high water mark stayed low for a while.
+ */
+final class RenderLayer {
+	RenderLayer(int capacity) {
+		items = new BatchRenderItem[capacity];
+		keys = NO_KEYS;
+		order = NO_ORDER;
+		keyBuffer = NO_KEYS;
+		itemBuffer = NO_ITEMS;
+	}
+
+	/**
+	 * Appends an item, growing the item array if needed.
+	 *
+	 * @return index of the added item
+	 */
+	int add(BatchRenderItem item) {
+		if (count == items.length) {
+			items = Arrays.copyOf(items, items.length * 2);
+		}
+		int i = count++;
+		items[i] = item;
+		sorted = false;
+		return i;
+	}
+
+	void setKey(int i, long key) {
+		if (keys.length < items.length) {
+			keys = Arrays.copyOf(keys, items.length);
+		}
+		keys[i] = key;
+	}
+
+	/**
+	 * Returns the order array of the last sort, reallocated if too small.
+	 */
+	int[] getOrder() {
+		if (order.length < count) {
+			order = new int[items.length];
+			lastSortCount = 0;
+		}
+		return order;
+	}
+
+	/**
+	 * Returns the key merge buffer used by parallel sorting, allocated on first use.
+	 */
+	long[] getKeyBuffer(boolean byKeys) {
+		if (!byKeys) {
+			return null;
+		}
+		if (keyBuffer.length < count) {
+			keyBuffer = new long[items.length];
+		}
+		return keyBuffer;
+	}
+
+	/**
+	 * Returns the item merge buffer used by parallel sorting, allocated on first use.
+	 */
+	Object[] getItemBuffer() {
+		if (itemBuffer.length < count) {
+			itemBuffer = new Object[items.length];
+		}
+		return itemBuffer;
+	}
+
+	int getCapacity() {
+		return items.length;
+	}
+
+	/**
+	 * Reduces the capacity of this empty layer.
+	 */
+	void shrink(int capacity) {
+		items = new BatchRenderItem[capacity];
+		keys = NO_KEYS;
+		order = NO_ORDER;
+		keyBuffer = NO_KEYS;
+		itemBuffer = NO_ITEMS;
+		lastSortCount = 0;
+	}
+
+	private static final long[] NO_KEYS = new long[0];
+	private static final int[] NO_ORDER = new int[0];
+	private static final Object[] NO_ITEMS = new Object[0];
+
+	BatchRenderItem[] items;
+	long[] keys;
+	int[] order;
+	int count;
+	int lastSortCount;
+	int highWater;
+	boolean sorted;
+	private long[] keyBuffer;
+	private Object[] itemBuffer;
+}
@@ -0,0 +1,60 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Retained items of a single render queue layer, kept in sorted order across frames.
+ */
+final class RetainedLayer {
+	RetainedLayer() {
+		items = new BatchRenderItem[16];
+		keys = new long[16];
+		handles = new int[16];
+	}
+
+	void add(BatchRenderItem item, long key, int handle) {
+		if (count == items.length) {
+			int capacity = count * 2;
+			items = Arrays.copyOf(items, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			handles = Arrays.copyOf(handles, capacity);
+		}
+		items[count] = item;
+		keys[count] = key;
+		handles[count] = handle;
+		count++;
+	}
+
+	/**
+	 * Restores the sort order after a few items were changed or added, keeps the order of equal items.
+	 *
+	 * @param byKeys true to compare sort keys, false to compare items
+	 */
+	void insertionSort(boolean byKeys) {
+		BatchRenderItem[] items = this.items;
+		long[] keys = this.keys;
+		int[] handles = this.handles;
+		for (int i = 1; i < count; i++) {
+			BatchRenderItem item = items[i];
+			long key = keys[i];
+			int handle = handles[i];
+			int j = i - 1;
+			while (j >= 0 && (byKeys ? Long.compareUnsigned(keys[j], key) > 0 : items[j].compareTo(item) > 0)) {
+				items[j + 1] = items[j];
+				keys[j + 1] = keys[j];
+				handles[j + 1] = handles[j];
+				j--;
+			}
+			items[j + 1] = item;
+			keys[j + 1] = key;
+			handles[j + 1] = handle;
+		}
+	}
+
+	BatchRenderItem[] items;
+	long[] keys;
+	int[] handles;
+	int count;
+}
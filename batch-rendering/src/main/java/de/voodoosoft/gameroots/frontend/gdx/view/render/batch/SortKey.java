@@ -0,0 +1,168 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+
+
+
+/**
+ * Helper for packing the sort criteria of batch items into a single <code>long</code>.
+ * <p/>
+ * Keys are compared as unsigned numbers, most significant bits first:
+ * <pre>
+ *  63      52 51      36 35     34 33     30 29      20 19         0
+ * | layer 12 | depth 16 | phase 2 | blend 4 | shader 10 | texture 20 |
+ * </pre>
+ * The phase separates sprites from shape items of each shape type, see {@link #phaseId(ShapeRenderer.ShapeType)},
+ * so switches between sprite batch and shape renderers only happen once per phase within each layer and depth.
+ * Batch items only provide the lower, layer independent part of the key.
+ * Layer and depth are added by the render queue while queueing.
+ */
+public final class SortKey {
+	public static final int LAYER_BITS = 12;
+	public static final int DEPTH_BITS = 16;
+	public static final int PHASE_BITS = 2;
+	public static final int BLEND_BITS = 4;
+	public static final int SHADER_BITS = 10;
+	public static final int TEXTURE_BITS = 20;
+
+	public static final int MAX_LAYERS = 1 << LAYER_BITS;
+
+	/**
+	 * Packs blend mode, shader and texture into a sort key.
+	 *
+	 * @param blend blend mode id
+	 * @param shader shader id
+	 * @param texture texture handle
+	 * @return sort key without layer and depth
+	 */
+	public static long pack(int blend, int shader, int texture) {
+		return pack(0, blend, shader, texture);
+	}
+
+	/**
+	 * Packs draw phase, blend mode, shader and texture into a sort key.
+	 *
+	 * @param phase draw phase id
+	 * @param blend blend mode id
+	 * @param shader shader id
+	 * @param texture texture handle
+	 * @return sort key without layer and depth
+	 */
+	public static long pack(int phase, int blend, int shader, int texture) {
+		return ((long)(phase & PHASE_MASK) << PHASE_SHIFT)
+			| ((long)(blend & BLEND_MASK) << BLEND_SHIFT)
+			| ((long)(shader & SHADER_MASK) << SHADER_SHIFT)
+			| (texture & TEXTURE_MASK);
+	}
+
+	/**
+	 * Returns the given key with its layer bits replaced.
+	 *
+	 * @param key sort key
+	 * @param layer layer to store
+	 * @return
+	 */
+	public static long withLayer(long key, int layer) {
+		return (key & ~((long)LAYER_MASK << LAYER_SHIFT)) | ((long)(layer & LAYER_MASK) << LAYER_SHIFT);
+	}
+
+	/**
+	 * Returns the given key with its depth bits replaced.
+	 *
+	 * @param key sort key
+	 * @param depth depth bucket to store
+	 * @return
+	 */
+	public static long withDepth(long key, int depth) {
+		return (key & ~((long)DEPTH_MASK << DEPTH_SHIFT)) | ((long)(depth & DEPTH_MASK) << DEPTH_SHIFT);
+	}
+
+	public static int getLayer(long key) {
+		return (int)(key >>> LAYER_SHIFT) & LAYER_MASK;
+	}
+
+	public static int getDepth(long key) {
+		return (int)(key >>> DEPTH_SHIFT) & DEPTH_MASK;
+	}
+
+	public static int getPhase(long key) {
+		return (int)(key >>> PHASE_SHIFT) & PHASE_MASK;
+	}
+
+	public static int getBlend(long key) {
+		return (int)(key >>> BLEND_SHIFT) & BLEND_MASK;
+	}
+
+	public static int getShader(long key) {
+		return (int)(key >>> SHADER_SHIFT) & SHADER_MASK;
+	}
+
+	public static int getTexture(long key) {
+		return (int)key & TEXTURE_MASK;
+	}
+
+	/**
+	 * Returns the sort id of the given blend mode.
+	 *
+	 * @param blendMode blend mode, may be null
+	 * @return
+	 */
+	public static int blendId(BlendMode blendMode) {
+		return blendMode != null ? blendMode.ordinal() : 0;
+	}
+
+	/**
+	 * Returns the draw phase id of the given shape type.
+	 * <br/>Sprites are drawn first, followed by filled shapes, lines and points.
+	 *
+	 * @param shapeType shape type, null for sprites
+	 * @return 0 for sprites
+	 */
+	public static int phaseId(ShapeRenderer.ShapeType shapeType) {
+		if (shapeType == null) {
+			return 0;
+		}
+		switch (shapeType) {
+			case Filled:
+				return 1;
+			case Line:
+				return 2;
+			default:
+				return 3;
+		}
+	}
+
+	/**
+	 * Returns a sort id for the given shader.
+	 * <p/>
+	 * The id is derived from the shader's identity.
+	 * Different shaders might share the same id, which only causes additional shader switches but never a wrong draw order.
+	 *
+	 * @param shaderProgram shader, null for the default shader
+	 * @return 0 for the default shader
+	 */
+	public static int shaderId(ShaderProgram shaderProgram) {
+		if (shaderProgram == null) {
+			return 0;
+		}
+		return 1 + (System.identityHashCode(shaderProgram) & 0x7fffffff) % SHADER_MASK;
+	}
+
+	private SortKey() {
+	}
+
+	private static final int TEXTURE_SHIFT = 0;
+	private static final int SHADER_SHIFT = TEXTURE_SHIFT + TEXTURE_BITS;
+	private static final int BLEND_SHIFT = SHADER_SHIFT + SHADER_BITS;
+	private static final int PHASE_SHIFT = BLEND_SHIFT + BLEND_BITS;
+	private static final int DEPTH_SHIFT = PHASE_SHIFT + PHASE_BITS;
+	private static final int LAYER_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+
+	private static final int TEXTURE_MASK = (1 << TEXTURE_BITS) - 1;
+	private static final int SHADER_MASK = (1 << SHADER_BITS) - 1;
+	private static final int BLEND_MASK = (1 << BLEND_BITS) - 1;
+	private static final int PHASE_MASK = (1 << PHASE_BITS) - 1;
+	private static final int DEPTH_MASK = (1 << DEPTH_BITS) - 1;
+	private static final int LAYER_MASK = (1 << LAYER_BITS) - 1;
+}
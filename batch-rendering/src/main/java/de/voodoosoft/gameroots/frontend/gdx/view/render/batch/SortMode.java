@@ -0,0 +1,30 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+
+
+/**
+ * Specifies how batch items are sorted within a layer.
+ */
+public enum SortMode {
+	/**
+	 * Items are sorted by their <code>compareTo</code> implementation.
+	 */
+	COMPARATOR,
+
+	/**
+	 * Items are sorted by their packed sort keys using a radix sort.
+	 * <br/>Keys are taken once when items are queued, so items must be fully set up before calling <code>queueItem</code>.
+	 *
+	 * @see SortKey
+	 */
+	RADIX,
+
+	/**
+	 * Like <code>RADIX</code>, but each layer reuses the sort order of the last frame
+	 * and only falls back to a full radix sort if the input is too disordered.
+	 * <br/>Best suited for scenes queueing the same items in almost the same order every frame.
+	 *
+	 * @see CoherentSort
+	 */
+	ADAPTIVE
+}
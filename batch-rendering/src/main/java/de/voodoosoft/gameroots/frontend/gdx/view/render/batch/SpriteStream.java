@@ -0,0 +1,373 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntIntMap;
+
+import java.util.Arrays;
+
+
+
+/**
+ * Object free alternative to texture batch items for very large sprite counts.
+ * <p/>
+ * Sprites are written straight into primitive arrays, no objects are created, pooled or sorted per sprite.
+ * Texture regions are registered once and referenced by their region id.
+ * <br/>Before rendering, sprites are sorted by layer and texture using their indices only,
+ * then vertices are generated and handed to the sprite batch in runs of the same texture.
+ * <p/>
+ * A stream is attached to a render queue with {@link BatchRenderQueue#addSpriteStream(SpriteStream)}.
+ * The queue draws the sprites of each layer right after the regular batch items of the same layer
+ * and clears the stream when it is reset.
+ * <br/>All sprites of a stream share the same blend mode and are drawn using the default shader.
+ */
+public class SpriteStream {
+	/**
+	 * Creates a new sprite stream.
+	 *
+	 * @param capacity initial number of sprites, the stream grows when needed
+	 */
+	public SpriteStream(int capacity) {
+		capacity = Math.max(capacity, 16);
+		xs = new float[capacity];
+		ys = new float[capacity];
+		widths = new float[capacity];
+		heights = new float[capacity];
+		rotations = new float[capacity];
+		colors = new float[capacity];
+		regionIds = new int[capacity];
+		layers = new int[capacity];
+		keys = new long[capacity];
+		order = new int[capacity];
+
+		textureIds = new IntIntMap();
+		regionTextures = new Texture[16];
+		regionTextureIds = new int[16];
+		regionUVs = new float[16 * 4];
+
+		vertices = new float[VERTEX_BUFFER_SPRITES * SPRITE_SIZE];
+		layerStarts = new int[0];
+		radixSort = new RadixSort();
+	}
+
+	/**
+	 * Registers a texture region.
+	 *
+	 * @param region texture region
+	 * @return region id to be passed to <code>add</code>
+	 */
+	public int addRegion(TextureRegion region) {
+		int regionId = regionCount++;
+		if (regionId == regionTextures.length) {
+			regionTextures = Arrays.copyOf(regionTextures, regionId * 2);
+			regionTextureIds = Arrays.copyOf(regionTextureIds, regionId * 2);
+			regionUVs = Arrays.copyOf(regionUVs, regionId * 2 * 4);
+		}
+
+		Texture texture = region.getTexture();
+		int handle = texture.getTextureObjectHandle();
+		int textureId = textureIds.get(handle, -1);
+		if (textureId == -1) {
+			textureId = textureIds.size;
+			textureIds.put(handle, textureId);
+		}
+
+		regionTextures[regionId] = texture;
+		regionTextureIds[regionId] = textureId;
+		int uv = regionId * 4;
+		regionUVs[uv] = region.getU();
+		regionUVs[uv + 1] = region.getV();
+		regionUVs[uv + 2] = region.getU2();
+		regionUVs[uv + 3] = region.getV2();
+		return regionId;
+	}
+
+	/**
+	 * Adds an unrotated sprite.
+	 *
+	 * @param layer render layer
+	 * @param regionId id returned by <code>addRegion</code>
+	 * @param x left
+	 * @param y bottom
+	 * @param width
+	 * @param height
+	 * @param packedColor tint color packed into a float
+	 */
+	public void add(int layer, int regionId, float x, float y, float width, float height, float packedColor) {
+		add(layer, regionId, x, y, width, height, 0, packedColor);
+	}
+
+	/**
+	 * Adds a sprite rotated around its center.
+	 *
+	 * @param layer render layer
+	 * @param regionId id returned by <code>addRegion</code>
+	 * @param x left
+	 * @param y bottom
+	 * @param width
+	 * @param height
+	 * @param rotation rotation in degrees, counter clockwise
+	 * @param packedColor tint color packed into a float
+	 */
+	public void add(int layer, int regionId, float x, float y, float width, float height, float rotation, float packedColor) {
+		if (count == xs.length) {
+			grow();
+		}
+		int i = count++;
+		xs[i] = x;
+		ys[i] = y;
+		widths[i] = width;
+		heights[i] = height;
+		rotations[i] = rotation;
+		colors[i] = packedColor;
+		regionIds[i] = regionId;
+		layers[i] = layer;
+		sorted = false;
+	}
+
+	/**
+	 * Returns the number of sprites added since the last <code>reset</code>.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Removes all sprites, registered regions are kept.
+	 */
+	public void reset() {
+		count = 0;
+		sorted = false;
+	}
+
+	/**
+	 * Sets the blend mode of all sprites.
+	 *
+	 * @param blendMode blend mode, null for regular alpha blending
+	 */
+	public void setBlendMode(BlendMode blendMode) {
+		this.blendMode = blendMode;
+	}
+
+	public BlendMode getBlendMode() {
+		return blendMode;
+	}
+
+	/**
+	 * Sorts all sprites by layer and texture.
+	 * <br/>Called automatically before rendering, sprites of the same layer and texture keep the order they were added in.
+	 */
+	public void sort() {
+		if (sorted) {
+			return;
+		}
+
+		int count = this.count;
+		long[] keys = this.keys;
+		int[] order = this.order;
+		int maxLayer = 0;
+		for (int i = 0; i < count; i++) {
+			int layer = layers[i];
+			keys[i] = SortKey.withLayer(SortKey.pack(0, 0, regionTextureIds[regionIds[i]]), layer);
+			order[i] = i;
+			if (layer > maxLayer) {
+				maxLayer = layer;
+			}
+		}
+		radixSort.sortPairs(keys, order, count);
+
+		if (layerStarts.length < maxLayer + 2) {
+			layerStarts = new int[maxLayer + 2];
+		}
+		layerCount = maxLayer + 1;
+		int j = 0;
+		for (int layer = 0; layer <= maxLayer; layer++) {
+			layerStarts[layer] = j;
+			while (j < count && SortKey.getLayer(keys[j]) == layer) {
+				j++;
+			}
+		}
+		layerStarts[maxLayer + 1] = count;
+		sorted = true;
+	}
+
+	/**
+	 * Draws all sprites of the given layer.
+	 *
+	 * @param state render state bound to an open sprite batch
+	 * @param layer render layer
+	 */
+	public void render(BatchRenderState state, int layer) {
+		sort();
+		if (layer >= layerCount) {
+			return;
+		}
+		int start = layerStarts[layer];
+		int end = layerStarts[layer + 1];
+		if (start == end) {
+			return;
+		}
+
+		state.setShader(null);
+		if (blendMode == null) {
+			state.enableBlending(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		}
+		else if (blendMode.getSrcFunction() != 0 || blendMode.getDestFunction() != 0) {
+			state.enableBlending(blendMode.getSrcFunction(), blendMode.getDestFunction());
+		}
+		else {
+			state.disableBlending();
+		}
+
+		float[] vertices = this.vertices;
+		int[] order = this.order;
+		Texture texture = null;
+		int offset = 0;
+		for (int j = start; j < end; j++) {
+			int i = order[j];
+			int regionId = regionIds[i];
+			Texture regionTexture = regionTextures[regionId];
+			if (regionTexture != texture || offset == vertices.length) {
+				if (offset > 0) {
+					state.getBatch().draw(texture, vertices, 0, offset);
+				}
+				texture = regionTexture;
+				offset = 0;
+			}
+			writeVertices(vertices, offset, i, regionId);
+			offset += SPRITE_SIZE;
+		}
+		state.getBatch().draw(texture, vertices, 0, offset);
+	}
+
+	/**
+	 * Sets the bits of all layers holding sprites.
+	 */
+	void markLayers(long[] layerBits) {
+		sort();
+		int maxLayer = Math.min(layerCount, layerBits.length << 6);
+		for (int layer = 0; layer < maxLayer; layer++) {
+			if (layerStarts[layer] < layerStarts[layer + 1]) {
+				layerBits[layer >> 6] |= 1L << layer;
+			}
+		}
+	}
+
+	private void writeVertices(float[] vertices, int offset, int i, int regionId) {
+		float x = xs[i];
+		float y = ys[i];
+		float width = widths[i];
+		float height = heights[i];
+		float rotation = rotations[i];
+		float color = colors[i];
+		int uv = regionId * 4;
+		float u = regionUVs[uv];
+		float v = regionUVs[uv + 1];
+		float u2 = regionUVs[uv + 2];
+		float v2 = regionUVs[uv + 3];
+
+		float x1, y1, x2, y2, x3, y3, x4, y4;
+		if (rotation == 0) {
+			x1 = x;
+			y1 = y;
+			x2 = x;
+			y2 = y + height;
+			x3 = x + width;
+			y3 = y + height;
+			x4 = x + width;
+			y4 = y;
+		}
+		else {
+			float halfWidth = width * 0.5f;
+			float halfHeight = height * 0.5f;
+			float centerX = x + halfWidth;
+			float centerY = y + halfHeight;
+			float cos = MathUtils.cosDeg(rotation);
+			float sin = MathUtils.sinDeg(rotation);
+			float cosX = cos * halfWidth;
+			float sinX = sin * halfWidth;
+			float cosY = cos * halfHeight;
+			float sinY = sin * halfHeight;
+
+			x1 = centerX - cosX + sinY;
+			y1 = centerY - sinX - cosY;
+			x2 = centerX - cosX - sinY;
+			y2 = centerY - sinX + cosY;
+			x3 = centerX + cosX - sinY;
+			y3 = centerY + sinX + cosY;
+			x4 = centerX + cosX + sinY;
+			y4 = centerY + sinX - cosY;
+		}
+
+		vertices[offset] = x1;
+		vertices[offset + 1] = y1;
+		vertices[offset + 2] = color;
+		vertices[offset + 3] = u;
+		vertices[offset + 4] = v2;
+
+		vertices[offset + 5] = x2;
+		vertices[offset + 6] = y2;
+		vertices[offset + 7] = color;
+		vertices[offset + 8] = u;
+		vertices[offset + 9] = v;
+
+		vertices[offset + 10] = x3;
+		vertices[offset + 11] = y3;
+		vertices[offset + 12] = color;
+		vertices[offset + 13] = u2;
+		vertices[offset + 14] = v;
+
+		vertices[offset + 15] = x4;
+		vertices[offset + 16] = y4;
+		vertices[offset + 17] = color;
+		vertices[offset + 18] = u2;
+		vertices[offset + 19] = v2;
+	}
+
+	private void grow() {
+		int capacity = xs.length * 2;
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		widths = Arrays.copyOf(widths, capacity);
+		heights = Arrays.copyOf(heights, capacity);
+		rotations = Arrays.copyOf(rotations, capacity);
+		colors = Arrays.copyOf(colors, capacity);
+		regionIds = Arrays.copyOf(regionIds, capacity);
+		layers = Arrays.copyOf(layers, capacity);
+		keys = new long[capacity];
+		order = new int[capacity];
+	}
+
+	private static final int SPRITE_SIZE = 20;
+	private static final int VERTEX_BUFFER_SPRITES = 256;
+
+	private float[] xs;
+	private float[] ys;
+	private float[] widths;
+	private float[] heights;
+	private float[] rotations;
+	private float[] colors;
+	private int[] regionIds;
+	private int[] layers;
+	private int count;
+
+	private IntIntMap textureIds;
+	private Texture[] regionTextures;
+	private int[] regionTextureIds;
+	private float[] regionUVs;
+	private int regionCount;
+
+	private BlendMode blendMode;
+
+	private long[] keys;
+	private int[] order;
+	private int[] layerStarts;
+	private int layerCount;
+	private boolean sorted;
+	private final RadixSort radixSort;
+	private final float[] vertices;
+}
@@ -1,8 +1,14 @@
 package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
-import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortKey;
 
 
 
@@ -12,7 +18,14 @@ import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
  * Draw order is as follows:
  * <br/>1. post/pre lighting
  * <br/>2. layer
- * <br/>3. blend mode
+ * <br/>3. depth
+ * <br/>4. shape type, sprites first
+ * <br/>5. blend mode
+ * <br/>6. shader
+ * <br/>7. texture, across all item classes
+ * <p/>
+ * Subclasses draw by overriding {@link #render(BatchRenderState, long)},
+ * drawing directly to a sprite batch is supported for items rendered outside of a render queue.
  */
 public abstract class AbstractBatchItem implements BatchRenderItem {
 	public AbstractBatchItem() {
@@ -31,6 +44,45 @@ public abstract class AbstractBatchItem implements BatchRenderItem {
 		this.layer = layer;
 	}
 
+	@Override
+	public int getTypeId() {
+		return typeId;
+	}
+
+	@Override
+	public void setTypeId(int typeId) {
+		this.typeId = typeId;
+	}
+
+	@Override
+	public float getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Sets the depth of this item within its layer, items with lower depth are drawn first.
+	 * <br/>For y-sorted top-down or isometric scenes, pass the negated y position so items further up are drawn behind lower ones.
+	 *
+	 * @param depth
+	 */
+	public void setDepth(float depth) {
+		this.depth = depth;
+	}
+
+	@Override
+	public boolean isPostLighting() {
+		return postLighting;
+	}
+
+	/**
+	 * Specifies whether this item is drawn after stage lighting was applied, see {@link de.voodoosoft.gameroots.frontend.gdx.view.render.batch.LightingPass}.
+	 *
+	 * @param postLighting
+	 */
+	public void setPostLighting(boolean postLighting) {
+		this.postLighting = postLighting;
+	}
+
 	public BlendMode getBlendMode() {
 		return blendMode;
 	}
@@ -38,18 +90,148 @@ public abstract class AbstractBatchItem implements BatchRenderItem {
 	public void setBlendMode(BlendMode blendMode) {
 		this.blendMode = blendMode;
 		this.blending = blendMode != DefaultBlendMode.NONE;
+		updateSortKey();
 	}
 
 	public boolean isBlending() {
 		return blending;
 	}
 
-	protected static ShaderProgram getLastShaderProgram() {
-		return lastShaderProgram;
+	/**
+	 * Draws this item outside of a render queue, using a private state tracker.
+	 *
+	 * @param batch sprite batch to use for drawing
+	 * @param time current time in ns
+	 */
+	@Override
+	public void render(SpriteBatch batch, long time) {
+		if (directState == null) {
+			directState = new BatchRenderState();
+		}
+		directState.begin(batch);
+		render(directState, time);
+		directState.endShapes();
+	}
+
+	/**
+	 * Draws this item using the given render state.
+	 * <br/>Declared again since the default of {@link BatchRenderItem} calls back to <code>render(SpriteBatch, long)</code>.
+	 *
+	 * @param state render state of the drawing queue
+	 * @param time current time in ns
+	 */
+	@Override
+	public abstract void render(BatchRenderState state, long time);
+
+	/**
+	 * Sets the given bounds to the axis aligned bounding box of a rectangle rotated around its origin.
+	 *
+	 * @param bounds receives the bounding box
+	 * @param x left of the unrotated rectangle
+	 * @param y bottom of the unrotated rectangle
+	 * @param xOrigin rotation origin relative to x
+	 * @param yOrigin rotation origin relative to y
+	 * @param width
+	 * @param height
+	 * @param rotation rotation in degrees, counter clockwise
+	 */
+	protected static void setRotatedBounds(Rectangle bounds, float x, float y, float xOrigin, float yOrigin,
+			float width, float height, float rotation) {
+		if (rotation == 0) {
+			bounds.set(x, y, width, height);
+			return;
+		}
+
+		float cos = MathUtils.cosDeg(rotation);
+		float sin = MathUtils.sinDeg(rotation);
+		float left = -xOrigin;
+		float right = width - xOrigin;
+		float bottom = -yOrigin;
+		float top = height - yOrigin;
+
+		// extents of the rotated corners relative to the origin
+		float minX = Math.min(left * cos, right * cos) + Math.min(-bottom * sin, -top * sin);
+		float maxX = Math.max(left * cos, right * cos) + Math.max(-bottom * sin, -top * sin);
+		float minY = Math.min(left * sin, right * sin) + Math.min(bottom * cos, top * cos);
+		float maxY = Math.max(left * sin, right * sin) + Math.max(bottom * cos, top * cos);
+		bounds.set(x + xOrigin + minX, y + yOrigin + minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Applies the blend mode of this item to the given state tracker.
+	 *
+	 * @param state render state tracker
+	 */
+	protected void applyBlendMode(BatchRenderState state) {
+		if (blending) {
+			state.enableBlending(blendMode.getSrcFunction(), blendMode.getDestFunction());
+		}
+		else {
+			state.disableBlending();
+		}
+	}
+
+	/**
+	 * Starts or continues a shape phase of the given type, using the blend mode of this item.
+	 *
+	 * @param state render state tracker
+	 * @param shapeRenderer shape renderer to draw with
+	 * @param shapeType shape type
+	 */
+	protected void beginShapes(BatchRenderState state, ShapeRenderer shapeRenderer, ShapeType shapeType) {
+		if (blending) {
+			state.beginShapes(shapeRenderer, shapeType, blendMode.getSrcFunction(), blendMode.getDestFunction());
+		}
+		else {
+			state.beginShapes(shapeRenderer, shapeType, 0, 0);
+		}
+	}
+
+	/**
+	 * Returns the sort key built from shape type, blend mode, shader and texture handle.
+	 * <br/>The key is cached, see <code>updateSortKey</code>.
+	 */
+	@Override
+	public long getSortKey() {
+		return sortKey;
+	}
+
+	/**
+	 * Rebuilds the cached sort key.
+	 * <br/>Must be called by subclasses whenever the result of <code>getShapeType</code>, <code>getShaderId</code>
+	 * or <code>getTextureHandle</code> changes, the blend mode is tracked by this class.
+	 */
+	protected void updateSortKey() {
+		sortKey = SortKey.pack(SortKey.phaseId(getShapeType()), SortKey.blendId(blendMode), getShaderId(), getTextureHandle());
+	}
+
+	/**
+	 * Returns the shape type this item draws with.
+	 *
+	 * @return null for items drawing to the sprite batch
+	 */
+	protected ShapeType getShapeType() {
+		return null;
+	}
+
+	/**
+	 * Returns the handle of the texture used for drawing this item.
+	 * <br/>Subclasses return a cached handle, see <code>updateSortKey</code>.
+	 *
+	 * @return texture handle or 0 if unknown
+	 */
+	@Override
+	public int getTextureHandle() {
+		return 0;
 	}
 
-	protected static void setLastShaderProgram(ShaderProgram lastShaderProgram) {
-		AbstractBatchItem.lastShaderProgram = lastShaderProgram;
+	/**
+	 * Returns the sort id of the shader used for drawing this item.
+	 *
+	 * @return 0 for the default shader
+	 */
+	protected int getShaderId() {
+		return 0;
 	}
 
 	@Override
@@ -57,7 +239,11 @@ public abstract class AbstractBatchItem implements BatchRenderItem {
 		int result = 0;
 		if (otherItem instanceof AbstractBatchItem) {
 			AbstractBatchItem other = (AbstractBatchItem)otherItem;
-			result = this.blendMode.compareTo(other.blendMode);
+			result = Float.compare(this.depth, other.depth);
+			if (result == 0) {
+				// shape type, blend mode, shader and texture at once, so items of different classes sharing a texture end up next to each other
+				result = Long.compareUnsigned(this.sortKey, other.sortKey);
+			}
 		}
 
 		return result;
@@ -65,6 +251,10 @@ public abstract class AbstractBatchItem implements BatchRenderItem {
 
 	private BlendMode blendMode;
 	private int layer;
+	private float depth;
+	private long sortKey;
+	private int typeId = -1;
 	private boolean blending;
-	private static ShaderProgram lastShaderProgram;
+	private boolean postLighting;
+	private BatchRenderState directState;
 }
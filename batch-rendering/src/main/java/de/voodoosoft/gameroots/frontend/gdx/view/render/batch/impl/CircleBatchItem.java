@@ -2,9 +2,10 @@ package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
@@ -12,18 +13,32 @@ public class CircleBatchItem extends AbstractBatchItem implements Pool.Poolable
 	public CircleBatchItem(ShapeRenderer shapeRenderer) {
 		setBlendMode(DefaultBlendMode.NONE);
 		this.shapeRenderer = shapeRenderer;
+		setShapeType(ShapeType.Line);
 	}
 
 	@Override
 	public void reset() {
 		setBlendMode(DefaultBlendMode.NONE);
+		setDepth(0);
+		setPostLighting(false);
 		color = null;
+		setShapeType(ShapeType.Line);
 	}
 
 	public void setShapeRenderer(ShapeRenderer shapeRenderer) {
 		this.shapeRenderer = shapeRenderer;
 	}
 
+	/**
+	 * Specifies whether the circle is drawn as outline or filled.
+	 *
+	 * @param shapeType <code>Line</code> by default
+	 */
+	public void setShapeType(ShapeType shapeType) {
+		this.shapeType = shapeType;
+		updateSortKey();
+	}
+
 	public void setColor(Color color) {
 		this.color = color;
 	}
@@ -40,7 +55,8 @@ public class CircleBatchItem extends AbstractBatchItem implements Pool.Poolable
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
+	public void render(BatchRenderState state, long time) {
+		beginShapes(state, shapeRenderer, shapeType);
 		if (color != null) {
 			shapeRenderer.setColor(color);
 		}
@@ -48,7 +64,13 @@ public class CircleBatchItem extends AbstractBatchItem implements Pool.Poolable
 		shapeRenderer.circle(x1 - xOffset, y1 - yOffset, radius);
 	}
 
+	@Override
+	protected ShapeType getShapeType() {
+		return shapeType;
+	}
+
 	private ShapeRenderer shapeRenderer;
+	private ShapeType shapeType;
 	private Color color;
 	private float x1, y1, radius;
 	private float xOffset, yOffset;
@@ -1,9 +1,10 @@
 package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
@@ -16,6 +17,8 @@ public class FilledBatchItem extends AbstractBatchItem implements Pool.Poolable
 	@Override
 	public void reset() {
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
 		color = null;
 	}
 
@@ -38,13 +41,19 @@ public class FilledBatchItem extends AbstractBatchItem implements Pool.Poolable
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
+	public void render(BatchRenderState state, long time) {
+		beginShapes(state, shapeRenderer, ShapeType.Filled);
 		if (color != null) {
 			shapeRenderer.setColor(color);
 		}
 		shapeRenderer.rect(x1, y1, width, height);
 	}
 
+	@Override
+	protected ShapeType getShapeType() {
+		return ShapeType.Filled;
+	}
+
 	private ShapeRenderer shapeRenderer;
 	private Color color;
 	private float x1, y1, width, height;
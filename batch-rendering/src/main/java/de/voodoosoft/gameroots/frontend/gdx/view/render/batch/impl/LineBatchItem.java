@@ -1,20 +1,24 @@
 package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
 public class LineBatchItem extends AbstractBatchItem implements Pool.Poolable {
 	public LineBatchItem(ShapeRenderer shapeRenderer) {
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		this.shapeRenderer = shapeRenderer;
 	}
 
 	@Override
 	public void reset() {
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
 		color = null;
 	}
 
@@ -34,13 +38,19 @@ public class LineBatchItem extends AbstractBatchItem implements Pool.Poolable {
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
+	public void render(BatchRenderState state, long time) {
+		beginShapes(state, shapeRenderer, ShapeType.Line);
 		if (color != null) {
 			shapeRenderer.setColor(color);
 		}
 		shapeRenderer.line(x1, y1, x2, y2);
 	}
 
+	@Override
+	protected ShapeType getShapeType() {
+		return ShapeType.Line;
+	}
+
 	private ShapeRenderer shapeRenderer;
 	private Color color;
 	private float x1, y1, x2, y2;
@@ -3,9 +3,9 @@ package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Pool;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
@@ -39,6 +39,7 @@ public class NinePatchBatchItem extends AbstractBatchItem implements Pool.Poolab
 	@Override
 	public void reset() {
 		ninePatch = null;
+		textureHandle = 0;
 		color = null;
 		width = -1;
 		height = -1;
@@ -46,6 +47,8 @@ public class NinePatchBatchItem extends AbstractBatchItem implements Pool.Poolab
 		xOrigin = -1;
 		yOrigin = -1;
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
 	}
 
 	public void setLocation(float x, float y) {
@@ -90,6 +93,8 @@ public class NinePatchBatchItem extends AbstractBatchItem implements Pool.Poolab
 
 	public void setNinePatch(NinePatch ninePatch) {
 		this.ninePatch = ninePatch;
+		textureHandle = ninePatch != null ? ninePatch.getTexture().getTextureObjectHandle() : 0;
+		updateSortKey();
 	}
 
 	public Color getColor() {
@@ -101,29 +106,12 @@ public class NinePatchBatchItem extends AbstractBatchItem implements Pool.Poolab
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
-		if (getLastShaderProgram() != null) {
-			batch.setShader(null);
-			setLastShaderProgram(null);
-		}
-
-		if (isBlending()) {
-			batch.enableBlending();
-			BlendMode blendMode = getBlendMode();
-			if (!blendMode.equals(DefaultBlendMode.NONE)) {
-				batch.setBlendFunction(blendMode.getSrcFunction(), blendMode.getDestFunction());
-			}
-		}
-		else {
-			batch.disableBlending();
-		}
-		if (color != null) {
-			batch.setColor(color);
-		}
-		else {
-			batch.setColor(Color.WHITE);
-		}
+	public void render(BatchRenderState state, long time) {
+		state.setShader(null);
+		applyBlendMode(state);
+		state.setColor(color);
 
+		SpriteBatch batch = state.getBatch();
 		if (rotation != 0) {
 			if (xOrigin != -1 && yOrigin != -1) {
 				ninePatch.draw(batch, x, y, xOrigin, yOrigin, width, height, 1, 1, rotation);
@@ -144,18 +132,25 @@ public class NinePatchBatchItem extends AbstractBatchItem implements Pool.Poolab
 	}
 
 	@Override
-	public int compareTo(BatchRenderItem otherItem) {
-		int result = super.compareTo(otherItem);
-		if (result == 0) {
-			if (otherItem instanceof NinePatchBatchItem) {
-				NinePatchBatchItem o = (NinePatchBatchItem)otherItem;
-				int thisHandle = this.ninePatch.getTexture().getTextureObjectHandle();
-				int otherHandle = o.ninePatch.getTexture().getTextureObjectHandle();
-				result = Integer.compare(thisHandle, otherHandle);
-			}
+	public boolean getBounds(Rectangle bounds) {
+		if (ninePatch == null) {
+			return false;
+		}
+
+		float w = width != -1 ? width : ninePatch.getTotalWidth();
+		float h = height != -1 ? height : ninePatch.getTotalHeight();
+		if (rotation != 0 && xOrigin != -1 && yOrigin != -1) {
+			setRotatedBounds(bounds, x, y, xOrigin, yOrigin, w, h, rotation);
 		}
+		else {
+			setRotatedBounds(bounds, x, y, w / 2f, h / 2f, w, h, rotation);
+		}
+		return true;
+	}
 
-		return result;
+	@Override
+	public int getTextureHandle() {
+		return textureHandle;
 	}
 
 	private Color color;
@@ -163,5 +158,6 @@ public class NinePatchBatchItem extends AbstractBatchItem implements Pool.Poolab
 	private float width, height;
 	private float xOrigin, yOrigin;
 	private NinePatch ninePatch;
+	private int textureHandle;
 	private float rotation;
 }
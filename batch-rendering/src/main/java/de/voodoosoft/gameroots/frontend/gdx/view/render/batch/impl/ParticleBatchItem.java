@@ -2,9 +2,9 @@ package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
 import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Pool;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
@@ -15,10 +15,15 @@ import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
  * the concrete particle definition to be used for rendering is assigned during each render cycle on the fly
  * by calling  {@link #setParticleDef}.
  * <p/>
- *
+ * Particle effects are advanced while drawing, unless their definition was added to a {@link ParticleUpdateStage}.
+ * In that case, rendering only emits the particles already simulated by the stage.
+ * <br/>Effects are advanced at most once per render queue frame, drawing the same frame again only emits the particles.
+ * <p/>
+ * Only staged effects are culled, as effects advanced while drawing would stop and never complete while culled.
  */
 public class ParticleBatchItem extends AbstractBatchItem implements Pool.Poolable {
 	public ParticleBatchItem() {
+		setBlendMode(DefaultBlendMode.DEFAULT);
 	}
 
 	/**
@@ -27,10 +32,14 @@ public class ParticleBatchItem extends AbstractBatchItem implements Pool.Poolabl
 	@Override
 	public void reset() {
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
 	}
 
 	public void setParticleDef(ParticleDef particleDef) {
 		this.particleDef = particleDef;
+		textureHandle = particleDef != null ? particleDef.getSharedTextureHandle() : 0;
+		updateSortKey();
 	}
 
 	public ParticleDef getParticleDef() {
@@ -43,22 +52,10 @@ public class ParticleBatchItem extends AbstractBatchItem implements Pool.Poolabl
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
-		if (getLastShaderProgram() != null) {
-			batch.setShader(null);
-			setLastShaderProgram(null);
-		}
-
-		if (isBlending()) {
-			batch.enableBlending();
-			BlendMode blendMode = getBlendMode();
-			if (!blendMode.equals(DefaultBlendMode.NONE)) {
-				batch.setBlendFunction(blendMode.getSrcFunction(), blendMode.getDestFunction());
-			}
-		}
-		else {
-			batch.disableBlending();
-		}
+	public void render(BatchRenderState state, long time) {
+		state.setShader(null);
+		applyBlendMode(state);
+		SpriteBatch batch = state.getBatch();
 
 		float ex = particleDef.getEmitterX();
 		float ey = particleDef.getEmitterY();
@@ -68,6 +65,16 @@ public class ParticleBatchItem extends AbstractBatchItem implements Pool.Poolabl
 		float y = ey - yOffset;
 		effect.setPosition(x, y);
 
+		// draw frames again without advancing, e.g. for further views or when a render pipeline repeats a frame
+		long frameId = state.getFrameId();
+		boolean drawnBefore = frameId != 0 && particleDef.getDrawFrameId() == frameId;
+		particleDef.setDrawFrameId(frameId);
+		if (particleDef.isStaged() || drawnBefore) {
+			effect.draw(batch);
+			state.invalidateBlending();
+			return;
+		}
+
 		if (particleDef.getLastUpateTime() == 0) {
 			particleDef.setLastUpdateTime(time);
 		}
@@ -83,27 +90,54 @@ public class ParticleBatchItem extends AbstractBatchItem implements Pool.Poolabl
 			effect.draw(batch);
 		}
 
+		// emitters change the blend function on their own
+		state.invalidateBlending();
+
 		if (doUpdate && effect.isComplete()) {
 			particleDef.setRemove(true);
 		}
 	}
 
+	/**
+	 * Returns a square around the emitter position with the cull radius of the particle definition.
+	 * <br/>Bounds are only known for effects simulated by a {@link ParticleUpdateStage},
+	 * since effects advanced while drawing must be drawn every frame to complete.
+	 *
+	 * @param bounds receives the bounds
+	 * @return false if the particle definition has no cull radius or is not staged
+	 */
 	@Override
-	public int compareTo(BatchRenderItem otherItem) {
-		int result = super.compareTo(otherItem);
-		if (result == 0) {
-			if (otherItem instanceof ParticleBatchItem) {
-				ParticleBatchItem o = (ParticleBatchItem)otherItem;
-				result = Integer.compare(this.particleDef.getSharedTextureHandle(), o.getParticleDef().getSharedTextureHandle());
-			}
+	public boolean getBounds(Rectangle bounds) {
+		if (particleDef == null || particleDef.getCullRadius() <= 0 || !particleDef.isStaged()) {
+			return false;
 		}
 
-		return result;
+		float radius = particleDef.getCullRadius();
+		float x = particleDef.getEmitterX() - xOffset;
+		float y = particleDef.getEmitterY() - yOffset;
+		bounds.set(x - radius, y - radius, radius * 2, radius * 2);
+		return true;
+	}
+
+	/**
+	 * Returns true if either this item or its particle effect is marked as post lighting.
+	 *
+	 * @return
+	 */
+	@Override
+	public boolean isPostLighting() {
+		return super.isPostLighting() || particleDef != null && particleDef.isPostLighting();
+	}
+
+	@Override
+	public int getTextureHandle() {
+		return textureHandle;
 	}
 
 	private final static long MILLIS_AS_NANO = 1000000l;
 	private final static long SECS_AS_NANO = MILLIS_AS_NANO * 1000l;
 
 	private ParticleDef particleDef;
+	private int textureHandle;
 	private float xOffset, yOffset;
 }
@@ -0,0 +1,344 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
+
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.ScaledNumericValue;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Comparator;
+
+
+
+/**
+ * Keeps particle effects within a global budget of particles and update time per frame by lowering their level of detail.
+ * <p/>
+ * Each frame, <code>apply</code> ranks all budgeted particle definitions by priority, distance from the view center
+ * and whether they are on screen, then hands out the budget in rank order.
+ * Effects not fitting the remaining budget at full detail get a coarser level:
+ * <ul>
+ * <li>level 0: full detail</li>
+ * <li>level 1: update interval x2, emission 75%</li>
+ * <li>level 2: update interval x4, emission 50%</li>
+ * <li>level 3: update interval x8, emission 25%</li>
+ * </ul>
+ * Lower emission also decimates the particles drawn. Emission changes take effect when emitters restart, i.e. with their next duration.
+ * Off screen effects are at least on level 1.
+ * <p/>
+ * The time budget relies on the measured particle update time and the number of particles updated in that time,
+ * passed to <code>apply</code> by the {@link ParticleUpdateStage} updating the effects.
+ * <br/>Lower emission is set on the emitters of the pooled effects. Budgeted definitions are restored to full detail when removed,
+ * thus pooled effects of budgeted definitions must be freed by {@link ParticleDef#free()} or removed before freeing.
+ */
+public class ParticleBudget {
+	public ParticleBudget() {
+		entries = new Array<Entry>(false, 64, Entry.class);
+		levelCounts = new int[LEVELS];
+		maxParticles = 5000;
+		maxNanos = 2 * MILLIS_AS_NANO;
+		offScreenWeight = 0.25f;
+	}
+
+	/**
+	 * Adds a particle definition to be throttled by this budget.
+	 * <br/>Its current update interval and emission values are taken as full detail.
+	 *
+	 * @param particleDef particle definition, must not be added to another budget
+	 * @param priority relative importance, e.g. 1 for ambient effects and 10 for effects of the player
+	 */
+	public void add(ParticleDef particleDef, float priority) {
+		if (particleDef.isBudgeted()) {
+			throw new IllegalStateException(particleDef + " already added to a particle budget");
+		}
+		if (priority <= 0) {
+			throw new IllegalArgumentException("priority must be > 0");
+		}
+		particleDef.setBudget(this);
+		entries.add(new Entry(particleDef, priority));
+	}
+
+	/**
+	 * Removes a particle definition and restores its full detail.
+	 *
+	 * @param particleDef particle definition
+	 */
+	public void remove(ParticleDef particleDef) {
+		for (int i = 0; i < entries.size; i++) {
+			if (entries.get(i).particleDef == particleDef) {
+				entries.removeIndex(i).restore();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of particle definitions currently throttled by this budget.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return entries.size;
+	}
+
+	/**
+	 * Sets the number of live particles allowed per frame.
+	 *
+	 * @param maxParticles maximum particle count; 5000 by default
+	 */
+	public void setMaxParticles(int maxParticles) {
+		if (maxParticles <= 0) {
+			throw new IllegalArgumentException("max particles must be > 0");
+		}
+		this.maxParticles = maxParticles;
+	}
+
+	public int getMaxParticles() {
+		return maxParticles;
+	}
+
+	/**
+	 * Sets the time allowed for updating particles per frame.
+	 *
+	 * @param maxMillis maximum update time in ms; 2 by default
+	 */
+	public void setMaxMillis(float maxMillis) {
+		if (maxMillis <= 0) {
+			throw new IllegalArgumentException("max millis must be > 0");
+		}
+		this.maxNanos = (long)(maxMillis * MILLIS_AS_NANO);
+	}
+
+	public float getMaxMillis() {
+		return maxNanos / (float)MILLIS_AS_NANO;
+	}
+
+	/**
+	 * Specifies how much off screen effects count compared to on screen effects when ranking.
+	 *
+	 * @param offScreenWeight weight between 0 and 1; 0.25 by default
+	 */
+	public void setOffScreenWeight(float offScreenWeight) {
+		if (offScreenWeight < 0 || offScreenWeight > 1) {
+			throw new IllegalArgumentException("off screen weight must be between 0 and 1");
+		}
+		this.offScreenWeight = offScreenWeight;
+	}
+
+	/**
+	 * Assigns levels of detail to all budgeted particle effects, to be called once per frame before updating particles.
+	 * <br/>Takes the update time measured by the given stage during the last frame.
+	 *
+	 * @param view visible area in world coordinates
+	 * @param particleStage stage updating the particle effects
+	 */
+	public void apply(Rectangle view, ParticleUpdateStage particleStage) {
+		apply(view, particleStage.getUpdateNanos(), particleStage.getUpdatedParticleCount());
+	}
+
+	/**
+	 * Assigns levels of detail to all budgeted particle effects, to be called once per frame before updating particles.
+	 * <br/>Definitions marked for removal are dropped.
+	 *
+	 * @param view visible area in world coordinates
+	 * @param updateNanos time in ns spent updating particles during the last frame, 0 if unknown
+	 * @param updatedParticles number of particles updated in that time
+	 */
+	public void apply(Rectangle view, long updateNanos, int updatedParticles) {
+		dropRemoved();
+		estimateParticleCost(updateNanos, updatedParticles);
+
+		float centerX = view.x + view.width / 2;
+		float centerY = view.y + view.height / 2;
+		float halfDiagonal = Math.max(1, (float)Math.sqrt(view.width * view.width + view.height * view.height) / 2);
+		Entry[] items = entries.items;
+		int count = entries.size;
+		for (int i = 0; i < count; i++) {
+			Entry entry = items[i];
+			ParticleDef particleDef = entry.particleDef;
+			float x = particleDef.getEmitterX();
+			float y = particleDef.getEmitterY();
+			float radius = particleDef.getCullRadius();
+			entry.onScreen = x + radius >= view.x && x - radius <= view.x + view.width && y + radius >= view.y && y - radius <= view.y + view.height;
+
+			float dx = x - centerX;
+			float dy = y - centerY;
+			float distance = (float)Math.sqrt(dx * dx + dy * dy) / halfDiagonal;
+			entry.score = entry.priority * (entry.onScreen ? 1 : offScreenWeight) / (1 + distance);
+
+			entry.activeCount = activeCount(particleDef);
+			entry.fullCount = Math.max(1, Math.round(entry.activeCount / EMISSION_SCALES[entry.level]));
+		}
+		entries.sort(BY_SCORE);
+
+		float remainingParticles = maxParticles;
+		float remainingNanos = nanosPerParticle > 0 ? maxNanos : Float.MAX_VALUE;
+		particleCount = 0;
+		throttledCount = 0;
+		suppressedCount = 0;
+		estimatedNanos = 0;
+		for (int level = 0; level < LEVELS; level++) {
+			levelCounts[level] = 0;
+		}
+		for (int i = 0; i < count; i++) {
+			Entry entry = items[i];
+			int level = entry.onScreen ? 0 : 1;
+			float particles = 0, nanos = 0;
+			for (; level < LEVELS; level++) {
+				particles = entry.fullCount * EMISSION_SCALES[level];
+				nanos = particles * nanosPerParticle / INTERVAL_FACTORS[level];
+				if (particles <= remainingParticles && nanos <= remainingNanos) {
+					break;
+				}
+			}
+			level = Math.min(level, LEVELS - 1);
+			remainingParticles -= particles;
+			remainingNanos -= nanos;
+
+			entry.setLevel(level);
+			levelCounts[level]++;
+			particleCount += entry.activeCount;
+			estimatedNanos += nanos;
+			if (level > 0) {
+				throttledCount++;
+				suppressedCount += entry.fullCount - (int)particles;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of live particles of all budgeted effects, as counted by the last <code>apply</code>.
+	 *
+	 * @return
+	 */
+	public int getParticleCount() {
+		return particleCount;
+	}
+
+	/**
+	 * Returns the number of effects running below full detail after the last <code>apply</code>.
+	 *
+	 * @return
+	 */
+	public int getThrottledCount() {
+		return throttledCount;
+	}
+
+	/**
+	 * Returns the number of particles the throttled effects would have emitted on top at full detail.
+	 *
+	 * @return
+	 */
+	public int getSuppressedCount() {
+		return suppressedCount;
+	}
+
+	/**
+	 * Returns the number of effects assigned to the given level of detail by the last <code>apply</code>.
+	 *
+	 * @param level level of detail between 0 (full) and 3
+	 * @return
+	 */
+	public int getLevelCount(int level) {
+		return levelCounts[level];
+	}
+
+	/**
+	 * Returns the estimated particle update time per frame at the assigned levels of detail.
+	 *
+	 * @return estimated time in ns, 0 until update times were measured
+	 */
+	public long getEstimatedNanos() {
+		return (long)estimatedNanos;
+	}
+
+	private void estimateParticleCost(long updateNanos, int updatedParticles) {
+		if (updateNanos > 0 && updatedParticles > 0) {
+			float measured = updateNanos / (float)updatedParticles;
+			nanosPerParticle = nanosPerParticle > 0 ? nanosPerParticle * 0.8f + measured * 0.2f : measured;
+		}
+	}
+
+	private void dropRemoved() {
+		for (int i = entries.size - 1; i >= 0; i--) {
+			if (entries.get(i).particleDef.isRemove()) {
+				entries.removeIndex(i).restore();
+			}
+		}
+	}
+
+	private static int activeCount(ParticleDef particleDef) {
+		Array<ParticleEmitter> emitters = particleDef.getEffect().getEmitters();
+		int count = 0;
+		for (int i = 0; i < emitters.size; i++) {
+			count += emitters.get(i).getActiveCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Full detail settings of a budgeted particle definition.
+	 */
+	private static final class Entry {
+		Entry(ParticleDef particleDef, float priority) {
+			this.particleDef = particleDef;
+			this.priority = priority;
+			updateInterval = particleDef.getUpdateInterval();
+			Array<ParticleEmitter> emitters = particleDef.getEffect().getEmitters();
+			emissions = new float[emitters.size * 4];
+			for (int i = 0; i < emitters.size; i++) {
+				ScaledNumericValue emission = emitters.get(i).getEmission();
+				emissions[i * 4] = emission.getLowMin();
+				emissions[i * 4 + 1] = emission.getLowMax();
+				emissions[i * 4 + 2] = emission.getHighMin();
+				emissions[i * 4 + 3] = emission.getHighMax();
+			}
+		}
+
+		void setLevel(int level) {
+			if (level == this.level) {
+				return;
+			}
+			this.level = level;
+			particleDef.setDetailLevel(level);
+			particleDef.setUpdateInterval(updateInterval * INTERVAL_FACTORS[level]);
+			float scale = EMISSION_SCALES[level];
+			Array<ParticleEmitter> emitters = particleDef.getEffect().getEmitters();
+			for (int i = 0; i < emitters.size; i++) {
+				ScaledNumericValue emission = emitters.get(i).getEmission();
+				emission.setLow(emissions[i * 4] * scale, emissions[i * 4 + 1] * scale);
+				emission.setHigh(emissions[i * 4 + 2] * scale, emissions[i * 4 + 3] * scale);
+			}
+		}
+
+		void restore() {
+			setLevel(0);
+			particleDef.setBudget(null);
+		}
+
+		final ParticleDef particleDef;
+		final float priority;
+		final long updateInterval;
+		final float[] emissions;
+		int level;
+		boolean onScreen;
+		float score;
+		int activeCount;
+		int fullCount;
+	}
+
+	private final static int LEVELS = 4;
+	private final static int[] INTERVAL_FACTORS = {1, 2, 4, 8};
+	private final static float[] EMISSION_SCALES = {1, 0.75f, 0.5f, 0.25f};
+	private final static long MILLIS_AS_NANO = 1000000l;
+	private final static Comparator<Entry> BY_SCORE = (e1, e2) -> Float.compare(e2.score, e1.score);
+
+	private final Array<Entry> entries;
+	private final int[] levelCounts;
+	private int maxParticles;
+	private long maxNanos;
+	private float offScreenWeight;
+	private float nanosPerParticle;
+	private int particleCount;
+	private int throttledCount;
+	private int suppressedCount;
+	private float estimatedNanos;
+}
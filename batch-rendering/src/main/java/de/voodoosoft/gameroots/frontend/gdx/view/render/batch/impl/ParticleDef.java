@@ -5,6 +5,7 @@ import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
@@ -86,6 +87,19 @@ public class ParticleDef {
 		return effect;
 	}
 
+	/**
+	 * Returns the particle effect to its pool and marks this definition for removal.
+	 * <br/>A {@link ParticleBudget} throttling this definition restores its full detail first,
+	 * so the next effect obtained from the pool does not inherit a lowered emission.
+	 */
+	public void free() {
+		if (budget != null) {
+			budget.remove(this);
+		}
+		remove = true;
+		effect.free();
+	}
+
 	/**
 	 * Sets the time span between updating this particle effect.
 	 * @param updateInterval update interval in ns
@@ -152,6 +166,71 @@ public class ParticleDef {
 		return postLighting;
 	}
 
+	/**
+	 * Sets the radius around the emitter position covering all particles, used for culling.
+	 * <br/>Render queues only cull effects added to a {@link ParticleUpdateStage}.
+	 *
+	 * @param cullRadius radius in world units, 0 to never cull this particle effect
+	 */
+	public void setCullRadius(float cullRadius) {
+		this.cullRadius = cullRadius;
+	}
+
+	public float getCullRadius() {
+		return cullRadius;
+	}
+
+	/**
+	 * Returns true if this particle effect is simulated by a {@link ParticleUpdateStage} instead of while drawing.
+	 *
+	 * @return
+	 */
+	public boolean isStaged() {
+		return staged;
+	}
+
+	void setStaged(boolean staged) {
+		this.staged = staged;
+	}
+
+	/**
+	 * Returns the id of the last render queue frame this particle effect was drawn in, see {@link BatchRenderState#getFrameId()}.
+	 * @return
+	 */
+	long getDrawFrameId() {
+		return drawFrameId;
+	}
+
+	void setDrawFrameId(long drawFrameId) {
+		this.drawFrameId = drawFrameId;
+	}
+
+	/**
+	 * Returns true if this particle effect is throttled by a {@link ParticleBudget}.
+	 *
+	 * @return
+	 */
+	public boolean isBudgeted() {
+		return budget != null;
+	}
+
+	void setBudget(ParticleBudget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the level of detail assigned by a {@link ParticleBudget}.
+	 *
+	 * @return 0 for full detail up to 3 for the coarsest level
+	 */
+	public int getDetailLevel() {
+		return detailLevel;
+	}
+
+	void setDetailLevel(int detailLevel) {
+		this.detailLevel = detailLevel;
+	}
+
 	public int getSharedTextureHandle() {
 		return sharedTextureHandle;
 	}
@@ -174,9 +253,14 @@ public class ParticleDef {
 	private float emitterY;
 	private Vector2 velocity;
 	private long lastUpdateTime;
+	private long drawFrameId;
 	private long updateInterval;
 	private Enum type;
 	private boolean remove;
 	private boolean postLighting;
+	private boolean staged;
+	private ParticleBudget budget;
+	private int detailLevel;
 	private int sharedTextureHandle;
+	private float cullRadius;
 }
\ No newline at end of file
@@ -0,0 +1,879 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.RangedNumericValue;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter.ScaledNumericValue;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
+
+
+
+/**
+ * Data oriented particle effect, an alternative to libGDX particle effects for large particle counts.
+ * <p/>
+ * Emitter definitions are imported from a libGDX {@link ParticleEffect}, so effects made with the particle editor keep working.
+ * Particles are not objects but slots in primitive arrays per emitter, holding position, velocity, life, color, scale and rotation.
+ * Curves over particle life are sampled into lookup tables once, so <code>update</code> runs tight loops without any value lookups,
+ * and <code>draw</code> writes sprite vertices straight to the sprite batch.
+ * <p/>
+ * Supported are all emitter values and options, except for flipping. Curves over particle life are sampled at 64 points.
+ * <br/>The simulation approximates libGDX emitters: particle counts and bounds come out statistically alike,
+ * but curves are looked up in steps, times advance in whole milliseconds and random numbers are drawn in a different order,
+ * so single particles differ even for the same random seed.
+ * <br/>Emitter definitions are copied when creating the system, later changes of the template effect are not reflected.
+ * Like copies of libGDX effects, new systems are located at 0, 0 regardless of the template position.
+ * <br/>Particle systems are drawn within a render queue by {@link ParticleSystemBatchItem}.
+ */
+public class ParticleSystem {
+	/**
+	 * Creates a new particle system using the emitter definitions of the given effect.
+	 *
+	 * @param template particle effect providing emitter definitions and sprites
+	 */
+	public ParticleSystem(ParticleEffect template) {
+		Array<ParticleEmitter> templateEmitters = template.getEmitters();
+		emitters = new Emitter[templateEmitters.size];
+		int textureHandle = 0;
+		for (int i = 0; i < emitters.length; i++) {
+			emitters[i] = new Emitter(templateEmitters.get(i));
+			int emitterTexture = emitters[i].texture.getTextureObjectHandle();
+			textureHandle = i == 0 || textureHandle == emitterTexture ? emitterTexture : 0;
+		}
+		sharedTextureHandle = textureHandle;
+		extent = new float[4];
+	}
+
+	/**
+	 * Starts all emitters.
+	 */
+	public void start() {
+		for (Emitter emitter : emitters) {
+			emitter.start();
+		}
+	}
+
+	/**
+	 * Removes all particles and starts all emitters again.
+	 */
+	public void reset() {
+		for (Emitter emitter : emitters) {
+			emitter.reset();
+		}
+	}
+
+	/**
+	 * Lets continuous emitters complete their current duration.
+	 */
+	public void allowCompletion() {
+		for (Emitter emitter : emitters) {
+			emitter.allowCompletion = true;
+			emitter.durationTimer = emitter.duration;
+		}
+	}
+
+	/**
+	 * Moves the emitters to a new location, particles of attached emitters move along.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void setPosition(float x, float y) {
+		for (Emitter emitter : emitters) {
+			emitter.setPosition(x, y);
+		}
+	}
+
+	/**
+	 * Advances all emitters and particles.
+	 *
+	 * @param delta time in seconds
+	 */
+	public void update(float delta) {
+		for (Emitter emitter : emitters) {
+			emitter.update(delta);
+		}
+	}
+
+	/**
+	 * Draws all particles, one emitter after another.
+	 *
+	 * @param state render state tracker of the sprite batch
+	 */
+	public void draw(BatchRenderState state) {
+		for (Emitter emitter : emitters) {
+			if (emitter.count > 0) {
+				if (emitter.premultipliedAlpha) {
+					state.enableBlending(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+				}
+				else if (emitter.additive) {
+					state.enableBlending(GL20.GL_SRC_ALPHA, GL20.GL_ONE);
+				}
+				else {
+					state.enableBlending(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+				}
+				emitter.draw(state.getBatch());
+			}
+		}
+	}
+
+	/**
+	 * Returns true if all emitters completed and all particles died.
+	 *
+	 * @return
+	 */
+	public boolean isComplete() {
+		for (Emitter emitter : emitters) {
+			if (!emitter.isComplete()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of live particles of all emitters.
+	 *
+	 * @return
+	 */
+	public int getActiveCount() {
+		int count = 0;
+		for (Emitter emitter : emitters) {
+			count += emitter.count;
+		}
+		return count;
+	}
+
+	/**
+	 * Computes the bounds of the sprites of all live particles, like the bounding box of libGDX particle effects.
+	 *
+	 * @param bounds rectangle receiving the bounds
+	 * @return false if no particles are alive
+	 */
+	public boolean getBounds(Rectangle bounds) {
+		float[] extent = this.extent;
+		extent[0] = Float.MAX_VALUE;
+		extent[1] = Float.MAX_VALUE;
+		extent[2] = -Float.MAX_VALUE;
+		extent[3] = -Float.MAX_VALUE;
+		for (Emitter emitter : emitters) {
+			emitter.extendBounds(extent);
+		}
+		if (extent[0] > extent[2]) {
+			return false;
+		}
+		bounds.set(extent[0], extent[1], extent[2] - extent[0], extent[3] - extent[1]);
+		return true;
+	}
+
+	/**
+	 * Returns the texture handle shared by all emitters.
+	 *
+	 * @return 0 if emitters use different textures
+	 */
+	public int getSharedTextureHandle() {
+		return sharedTextureHandle;
+	}
+
+	/**
+	 * Imported emitter definition with its particles stored as structure of arrays.
+	 * <p/>
+	 * Follows the simulation of libGDX particle emitters, times are handled in whole milliseconds.
+	 */
+	static final class Emitter {
+		Emitter(ParticleEmitter definition) {
+			Sprite sprite = definition.getSprite();
+			if (sprite == null) {
+				throw new IllegalArgumentException("emitter " + definition.getName() + " has no sprite");
+			}
+			texture = sprite.getTexture();
+			u = sprite.getU();
+			v = sprite.getV2();
+			u2 = sprite.getU2();
+			v2 = sprite.getV();
+			spriteWidth = sprite.getWidth();
+			spriteHeight = sprite.getHeight();
+			originX = sprite.getOriginX();
+			originY = sprite.getOriginY();
+
+			minParticleCount = definition.getMinParticleCount();
+			maxParticleCount = definition.getMaxParticleCount();
+			continuous = definition.isContinuous();
+			additive = definition.isAdditive();
+			premultipliedAlpha = definition.isPremultipliedAlpha();
+			aligned = definition.isAligned();
+			attached = definition.isAttached();
+
+			delayValue = copy(definition.getDelay());
+			durationValue = copy(definition.getDuration());
+			emissionValue = copy(definition.getEmission());
+			lifeValue = copy(definition.getLife());
+			lifeOffsetValue = copy(definition.getLifeOffset());
+			spawnWidthValue = copy(definition.getSpawnWidth());
+			spawnHeightValue = copy(definition.getSpawnHeight());
+			xOffsetValue = copy(definition.getXOffsetValue());
+			yOffsetValue = copy(definition.getYOffsetValue());
+			velocityValue = copy(definition.getVelocity());
+			angleValue = copy(definition.getAngle());
+			scaleValue = copy(definition.getScale());
+			rotationValue = copy(definition.getRotation());
+			windValue = copy(definition.getWind());
+			gravityValue = copy(definition.getGravity());
+			transparencyValue = copy(definition.getTransparency());
+			spawnShape = definition.getSpawnShape().getShape();
+			spawnEdges = definition.getSpawnShape().isEdges();
+			spawnSide = definition.getSpawnShape().getSide();
+
+			updateVelocity = velocityValue.isActive();
+			updateAngle = angleValue.isActive() && angleValue.getTimeline().length > 1;
+			updateScale = scaleValue.getTimeline().length > 1;
+			updateRotation = rotationValue.isActive() && rotationValue.getTimeline().length > 1;
+			updateWind = windValue.isActive();
+			updateGravity = gravityValue.isActive();
+			updateTint = definition.getTint().getTimeline().length > 1;
+
+			velocityCurve = sample(velocityValue);
+			angleCurve = sample(angleValue);
+			scaleCurve = sample(scaleValue);
+			rotationCurve = sample(rotationValue);
+			windCurve = sample(windValue);
+			gravityCurve = sample(gravityValue);
+			transparencyCurve = sample(transparencyValue);
+			tintCurve = new float[CURVE_SIZE * 3];
+			for (int i = 0; i < CURVE_SIZE; i++) {
+				float[] color = definition.getTint().getColor(i / (float)(CURVE_SIZE - 1));
+				tintCurve[i * 3] = color[0];
+				tintCurve[i * 3 + 1] = color[1];
+				tintCurve[i * 3 + 2] = color[2];
+			}
+
+			int capacity = maxParticleCount;
+			posX = new float[capacity];
+			posY = new float[capacity];
+			life = new int[capacity];
+			currentLife = new int[capacity];
+			velocity = new float[capacity];
+			velocityDiff = new float[capacity];
+			angle = new float[capacity];
+			angleDiff = new float[capacity];
+			angleCos = new float[capacity];
+			angleSin = new float[capacity];
+			scale = new float[capacity];
+			scaleDiff = new float[capacity];
+			rotation = new float[capacity];
+			rotationDiff = new float[capacity];
+			wind = new float[capacity];
+			windDiff = new float[capacity];
+			gravity = new float[capacity];
+			gravityDiff = new float[capacity];
+			transparency = new float[capacity];
+			transparencyDiff = new float[capacity];
+			currentScale = new float[capacity];
+			currentRotation = new float[capacity];
+			color = new float[capacity];
+			vertices = new float[capacity * VERTICES_PER_PARTICLE];
+			duration = 1;
+		}
+
+		void start() {
+			firstUpdate = true;
+			allowCompletion = false;
+			restart();
+		}
+
+		void reset() {
+			emissionDelta = 0;
+			durationTimer = duration;
+			count = 0;
+			start();
+		}
+
+		void setPosition(float x, float y) {
+			if (attached) {
+				float dx = x - this.x;
+				float dy = y - this.y;
+				float[] posX = this.posX;
+				float[] posY = this.posY;
+				for (int i = 0, n = count; i < n; i++) {
+					posX[i] += dx;
+					posY[i] += dy;
+				}
+			}
+			this.x = x;
+			this.y = y;
+		}
+
+		boolean isComplete() {
+			if (continuous && !allowCompletion) {
+				return false;
+			}
+			if (delayTimer < delay) {
+				return false;
+			}
+			return durationTimer >= duration && count == 0;
+		}
+
+		void update(float delta) {
+			accumulator += delta * 1000;
+			if (accumulator < 1) {
+				return;
+			}
+			int deltaMillis = (int)accumulator;
+			accumulator -= deltaMillis;
+
+			if (delayTimer < delay) {
+				delayTimer += deltaMillis;
+			}
+			else {
+				boolean done = false;
+				if (firstUpdate) {
+					firstUpdate = false;
+					addParticles(1);
+				}
+
+				if (durationTimer < duration) {
+					durationTimer += deltaMillis;
+				}
+				else if (!continuous || allowCompletion) {
+					done = true;
+				}
+				else {
+					restart();
+				}
+
+				if (!done) {
+					emissionDelta += deltaMillis;
+					float emissionTime = emission + emissionDiff * emissionValue.getScale(durationTimer / duration);
+					if (emissionTime > 0) {
+						emissionTime = 1000 / emissionTime;
+						if (emissionDelta >= emissionTime) {
+							int emitCount = (int)(emissionDelta / emissionTime);
+							emitCount = Math.min(emitCount, maxParticleCount - count);
+							emissionDelta -= emitCount * emissionTime;
+							emissionDelta %= emissionTime;
+							addParticles(emitCount);
+						}
+					}
+					if (count < minParticleCount) {
+						addParticles(minParticleCount - count);
+					}
+				}
+			}
+
+			updateParticles(0, delta, deltaMillis);
+		}
+
+		/**
+		 * Advances all particles starting at the given index, dead particles are replaced by the last live particle.
+		 */
+		private void updateParticles(int from, float delta, int deltaMillis) {
+			int[] life = this.life;
+			int[] currentLife = this.currentLife;
+			float[] posX = this.posX;
+			float[] posY = this.posY;
+			float[] currentScale = this.currentScale;
+			float[] currentRotation = this.currentRotation;
+			float[] color = this.color;
+			float curveScale = CURVE_SIZE - 1;
+
+			int i = from;
+			while (i < count) {
+				int remaining = currentLife[i] - deltaMillis;
+				if (remaining <= 0) {
+					removeParticle(i);
+					continue;
+				}
+				currentLife[i] = remaining;
+
+				int c = (int)((1 - remaining / (float)life[i]) * curveScale);
+				if (updateScale) {
+					currentScale[i] = scale[i] + scaleDiff[i] * scaleCurve[c];
+				}
+
+				if (updateVelocity) {
+					float speed = (velocity[i] + velocityDiff[i] * velocityCurve[c]) * delta;
+					float vx, vy;
+					if (updateAngle) {
+						float particleAngle = angle[i] + angleDiff[i] * angleCurve[c];
+						vx = speed * MathUtils.cosDeg(particleAngle);
+						vy = speed * MathUtils.sinDeg(particleAngle);
+						if (updateRotation) {
+							float particleRotation = rotation[i] + rotationDiff[i] * rotationCurve[c];
+							currentRotation[i] = aligned ? particleRotation + particleAngle : particleRotation;
+						}
+					}
+					else {
+						vx = speed * angleCos[i];
+						vy = speed * angleSin[i];
+						if (aligned || updateRotation) {
+							float particleRotation = rotation[i] + rotationDiff[i] * rotationCurve[c];
+							currentRotation[i] = aligned ? particleRotation + angle[i] : particleRotation;
+						}
+					}
+					if (updateWind) {
+						vx += (wind[i] + windDiff[i] * windCurve[c]) * delta;
+					}
+					if (updateGravity) {
+						vy += (gravity[i] + gravityDiff[i] * gravityCurve[c]) * delta;
+					}
+					posX[i] += vx;
+					posY[i] += vy;
+				}
+				else if (updateRotation) {
+					currentRotation[i] = rotation[i] + rotationDiff[i] * rotationCurve[c];
+				}
+
+				int t = updateTint ? c * 3 : 0;
+				float alpha = transparency[i] + transparencyDiff[i] * transparencyCurve[c];
+				if (premultipliedAlpha) {
+					color[i] = Color.toFloatBits(tintCurve[t] * alpha, tintCurve[t + 1] * alpha, tintCurve[t + 2] * alpha, additive ? 0 : alpha);
+				}
+				else {
+					color[i] = Color.toFloatBits(tintCurve[t], tintCurve[t + 1], tintCurve[t + 2], alpha);
+				}
+				i++;
+			}
+		}
+
+		private void addParticles(int emitCount) {
+			emitCount = Math.min(emitCount, maxParticleCount - count);
+			for (int n = 0; n < emitCount; n++) {
+				activateParticle(count++);
+			}
+		}
+
+		private void activateParticle(int i) {
+			float percent = durationTimer / duration;
+			currentLife[i] = life[i] = lifeMin + (int)(lifeDiffMax * lifeValue.getScale(percent));
+
+			if (velocityValue.isActive()) {
+				velocity[i] = velocityValue.newLowValue();
+				velocityDiff[i] = velocityValue.newHighValue();
+				if (!velocityValue.isRelative()) {
+					velocityDiff[i] -= velocity[i];
+				}
+			}
+
+			angle[i] = angleValue.newLowValue();
+			angleDiff[i] = angleValue.newHighValue();
+			if (!angleValue.isRelative()) {
+				angleDiff[i] -= angle[i];
+			}
+			float spawnAngle = 0;
+			if (!updateAngle) {
+				spawnAngle = angle[i] + angleDiff[i] * angleCurve[0];
+				angle[i] = spawnAngle;
+				angleCos[i] = MathUtils.cosDeg(spawnAngle);
+				angleSin[i] = MathUtils.sinDeg(spawnAngle);
+			}
+
+			scale[i] = scaleValue.newLowValue() / spriteWidth;
+			scaleDiff[i] = scaleValue.newHighValue() / spriteWidth;
+			if (!scaleValue.isRelative()) {
+				scaleDiff[i] -= scale[i];
+			}
+			currentScale[i] = scale[i] + scaleDiff[i] * scaleCurve[0];
+
+			currentRotation[i] = 0;
+			if (rotationValue.isActive()) {
+				rotation[i] = rotationValue.newLowValue();
+				rotationDiff[i] = rotationValue.newHighValue();
+				if (!rotationValue.isRelative()) {
+					rotationDiff[i] -= rotation[i];
+				}
+				float particleRotation = rotation[i] + rotationDiff[i] * rotationCurve[0];
+				currentRotation[i] = aligned ? particleRotation + spawnAngle : particleRotation;
+			}
+			else {
+				rotation[i] = 0;
+				rotationDiff[i] = 0;
+			}
+
+			if (windValue.isActive()) {
+				wind[i] = windValue.newLowValue();
+				windDiff[i] = windValue.newHighValue();
+				if (!windValue.isRelative()) {
+					windDiff[i] -= wind[i];
+				}
+			}
+			if (gravityValue.isActive()) {
+				gravity[i] = gravityValue.newLowValue();
+				gravityDiff[i] = gravityValue.newHighValue();
+				if (!gravityValue.isRelative()) {
+					gravityDiff[i] -= gravity[i];
+				}
+			}
+
+			transparency[i] = transparencyValue.newLowValue();
+			transparencyDiff[i] = transparencyValue.newHighValue() - transparency[i];
+			color[i] = Color.toFloatBits(tintCurve[0], tintCurve[1], tintCurve[2], transparency[i] + transparencyDiff[i] * transparencyCurve[0]);
+
+			float px = this.x;
+			if (xOffsetValue.isActive()) {
+				px += xOffsetValue.newLowValue();
+			}
+			float py = this.y;
+			if (yOffsetValue.isActive()) {
+				py += yOffsetValue.newLowValue();
+			}
+			switch (spawnShape) {
+				case square: {
+					float width = spawnWidth + spawnWidthDiff * spawnWidthValue.getScale(percent);
+					float height = spawnHeight + spawnHeightDiff * spawnHeightValue.getScale(percent);
+					px += MathUtils.random(width) - width / 2;
+					py += MathUtils.random(height) - height / 2;
+					break;
+				}
+				case ellipse: {
+					float width = spawnWidth + spawnWidthDiff * spawnWidthValue.getScale(percent);
+					float height = spawnHeight + spawnHeightDiff * spawnHeightValue.getScale(percent);
+					float radiusX = width / 2;
+					float radiusY = height / 2;
+					if (radiusX == 0 || radiusY == 0) {
+						break;
+					}
+					float scaleY = radiusX / radiusY;
+					if (spawnEdges) {
+						float edgeAngle;
+						switch (spawnSide) {
+							case top:
+								edgeAngle = -MathUtils.random(179f);
+								break;
+							case bottom:
+								edgeAngle = MathUtils.random(179f);
+								break;
+							default:
+								edgeAngle = MathUtils.random(360f);
+								break;
+						}
+						float cos = MathUtils.cosDeg(edgeAngle);
+						float sin = MathUtils.sinDeg(edgeAngle);
+						px += cos * radiusX;
+						py += sin * radiusX / scaleY;
+						if (!updateAngle) {
+							angle[i] = edgeAngle;
+							angleCos[i] = cos;
+							angleSin[i] = sin;
+						}
+					}
+					else {
+						float radius2 = radiusX * radiusX;
+						while (true) {
+							float ex = MathUtils.random(width) - radiusX;
+							float ey = MathUtils.random(height) - radiusY;
+							if (ex * ex + ey * ey <= radius2) {
+								px += ex;
+								py += ey / scaleY;
+								break;
+							}
+						}
+					}
+					break;
+				}
+				case line: {
+					float width = spawnWidth + spawnWidthDiff * spawnWidthValue.getScale(percent);
+					float height = spawnHeight + spawnHeightDiff * spawnHeightValue.getScale(percent);
+					if (width != 0) {
+						float lineX = width * MathUtils.random();
+						px += lineX;
+						py += lineX * (height / width);
+					}
+					else {
+						py += height * MathUtils.random();
+					}
+					break;
+				}
+				default:
+					break;
+			}
+			posX[i] = px;
+			posY[i] = py;
+
+			int offsetTime = (int)(lifeOffsetMin + lifeOffsetDiff * lifeOffsetValue.getScale(percent));
+			if (offsetTime > 0) {
+				if (offsetTime >= currentLife[i]) {
+					offsetTime = currentLife[i] - 1;
+				}
+				// advance the new particle only, it is the last one
+				updateParticles(i, offsetTime / 1000f, offsetTime);
+			}
+		}
+
+		private void removeParticle(int i) {
+			int last = --count;
+			if (i == last) {
+				return;
+			}
+			posX[i] = posX[last];
+			posY[i] = posY[last];
+			life[i] = life[last];
+			currentLife[i] = currentLife[last];
+			velocity[i] = velocity[last];
+			velocityDiff[i] = velocityDiff[last];
+			angle[i] = angle[last];
+			angleDiff[i] = angleDiff[last];
+			angleCos[i] = angleCos[last];
+			angleSin[i] = angleSin[last];
+			scale[i] = scale[last];
+			scaleDiff[i] = scaleDiff[last];
+			rotation[i] = rotation[last];
+			rotationDiff[i] = rotationDiff[last];
+			wind[i] = wind[last];
+			windDiff[i] = windDiff[last];
+			gravity[i] = gravity[last];
+			gravityDiff[i] = gravityDiff[last];
+			transparency[i] = transparency[last];
+			transparencyDiff[i] = transparencyDiff[last];
+			currentScale[i] = currentScale[last];
+			currentRotation[i] = currentRotation[last];
+			color[i] = color[last];
+		}
+
+		private void restart() {
+			delay = delayValue.isActive() ? delayValue.newLowValue() : 0;
+			delayTimer = 0;
+
+			durationTimer -= duration;
+			duration = durationValue.newLowValue();
+
+			emission = (int)emissionValue.newLowValue();
+			emissionDiff = (int)emissionValue.newHighValue();
+			if (!emissionValue.isRelative()) {
+				emissionDiff -= emission;
+			}
+
+			lifeMin = (int)lifeValue.newLowValue();
+			lifeDiffMax = (int)lifeValue.newHighValue();
+			if (!lifeValue.isRelative()) {
+				lifeDiffMax -= lifeMin;
+			}
+
+			lifeOffsetMin = lifeOffsetValue.isActive() ? (int)lifeOffsetValue.newLowValue() : 0;
+			lifeOffsetDiff = (int)lifeOffsetValue.newHighValue();
+			if (!lifeOffsetValue.isRelative()) {
+				lifeOffsetDiff -= lifeOffsetMin;
+			}
+
+			spawnWidth = spawnWidthValue.newLowValue();
+			spawnWidthDiff = spawnWidthValue.newHighValue();
+			if (!spawnWidthValue.isRelative()) {
+				spawnWidthDiff -= spawnWidth;
+			}
+
+			spawnHeight = spawnHeightValue.newLowValue();
+			spawnHeightDiff = spawnHeightValue.newHighValue();
+			if (!spawnHeightValue.isRelative()) {
+				spawnHeightDiff -= spawnHeight;
+			}
+		}
+
+		/**
+		 * Writes the vertices of all particles and hands them to the batch at once.
+		 */
+		void draw(SpriteBatch batch) {
+			batch.draw(texture, vertices, 0, writeVertices());
+		}
+
+		/**
+		 * Extends the given bounds by the sprites of all particles.
+		 */
+		void extendBounds(float[] bounds) {
+			float[] vertices = this.vertices;
+			for (int k = 0, n = writeVertices(); k < n; k += 5) {
+				float vx = vertices[k];
+				float vy = vertices[k + 1];
+				bounds[0] = Math.min(bounds[0], vx);
+				bounds[1] = Math.min(bounds[1], vy);
+				bounds[2] = Math.max(bounds[2], vx);
+				bounds[3] = Math.max(bounds[3], vy);
+			}
+		}
+
+		/**
+		 * Writes the sprite vertices of all particles.
+		 *
+		 * @return number of vertex values written
+		 */
+		private int writeVertices() {
+			float[] vertices = this.vertices;
+			float[] posX = this.posX;
+			float[] posY = this.posY;
+			float[] currentScale = this.currentScale;
+			float[] currentRotation = this.currentRotation;
+			float[] color = this.color;
+			float u = this.u, v = this.v, u2 = this.u2, v2 = this.v2;
+			float halfWidth = spriteWidth / 2;
+			float halfHeight = spriteHeight / 2;
+			float originX = this.originX;
+			float originY = this.originY;
+
+			int k = 0;
+			for (int i = 0, n = count; i < n; i++) {
+				float s = currentScale[i];
+				float localX = -originX * s;
+				float localY = -originY * s;
+				float localX2 = (spriteWidth - originX) * s;
+				float localY2 = (spriteHeight - originY) * s;
+				float worldOriginX = posX[i] - halfWidth + originX;
+				float worldOriginY = posY[i] - halfHeight + originY;
+				float x1, y1, x2, y2, x3, y3, x4, y4;
+				float r = currentRotation[i];
+				if (r != 0) {
+					float cos = MathUtils.cosDeg(r);
+					float sin = MathUtils.sinDeg(r);
+					x1 = cos * localX - sin * localY;
+					y1 = sin * localX + cos * localY;
+					x2 = cos * localX - sin * localY2;
+					y2 = sin * localX + cos * localY2;
+					x3 = cos * localX2 - sin * localY2;
+					y3 = sin * localX2 + cos * localY2;
+					x4 = x1 + (x3 - x2);
+					y4 = y3 - (y2 - y1);
+				}
+				else {
+					x1 = localX;
+					y1 = localY;
+					x2 = localX;
+					y2 = localY2;
+					x3 = localX2;
+					y3 = localY2;
+					x4 = localX2;
+					y4 = localY;
+				}
+
+				float c = color[i];
+				vertices[k++] = x1 + worldOriginX;
+				vertices[k++] = y1 + worldOriginY;
+				vertices[k++] = c;
+				vertices[k++] = u;
+				vertices[k++] = v;
+				vertices[k++] = x2 + worldOriginX;
+				vertices[k++] = y2 + worldOriginY;
+				vertices[k++] = c;
+				vertices[k++] = u;
+				vertices[k++] = v2;
+				vertices[k++] = x3 + worldOriginX;
+				vertices[k++] = y3 + worldOriginY;
+				vertices[k++] = c;
+				vertices[k++] = u2;
+				vertices[k++] = v2;
+				vertices[k++] = x4 + worldOriginX;
+				vertices[k++] = y4 + worldOriginY;
+				vertices[k++] = c;
+				vertices[k++] = u2;
+				vertices[k++] = v;
+			}
+			return k;
+		}
+
+		private static RangedNumericValue copy(RangedNumericValue value) {
+			RangedNumericValue copy = new RangedNumericValue();
+			copy.load(value);
+			return copy;
+		}
+
+		private static ScaledNumericValue copy(ScaledNumericValue value) {
+			ScaledNumericValue copy = new ScaledNumericValue();
+			copy.load(value);
+			return copy;
+		}
+
+		private static float[] sample(ScaledNumericValue value) {
+			float[] curve = new float[CURVE_SIZE];
+			for (int i = 0; i < CURVE_SIZE; i++) {
+				curve[i] = value.getScale(i / (float)(CURVE_SIZE - 1));
+			}
+			return curve;
+		}
+
+		final Texture texture;
+		final float u, v, u2, v2;
+		final float spriteWidth, spriteHeight;
+		final float originX, originY;
+		final int minParticleCount;
+		final int maxParticleCount;
+		final boolean continuous;
+		final boolean additive;
+		final boolean premultipliedAlpha;
+		final boolean aligned;
+		final boolean attached;
+
+		final RangedNumericValue delayValue;
+		final RangedNumericValue durationValue;
+		final ScaledNumericValue emissionValue;
+		final ScaledNumericValue lifeValue;
+		final ScaledNumericValue lifeOffsetValue;
+		final ScaledNumericValue spawnWidthValue;
+		final ScaledNumericValue spawnHeightValue;
+		final RangedNumericValue xOffsetValue;
+		final RangedNumericValue yOffsetValue;
+		final ScaledNumericValue velocityValue;
+		final ScaledNumericValue angleValue;
+		final ScaledNumericValue scaleValue;
+		final ScaledNumericValue rotationValue;
+		final ScaledNumericValue windValue;
+		final ScaledNumericValue gravityValue;
+		final ScaledNumericValue transparencyValue;
+		final ParticleEmitter.SpawnShape spawnShape;
+		final boolean spawnEdges;
+		final ParticleEmitter.SpawnEllipseSide spawnSide;
+
+		final boolean updateVelocity;
+		final boolean updateAngle;
+		final boolean updateScale;
+		final boolean updateRotation;
+		final boolean updateWind;
+		final boolean updateGravity;
+		final boolean updateTint;
+
+		final float[] velocityCurve;
+		final float[] angleCurve;
+		final float[] scaleCurve;
+		final float[] rotationCurve;
+		final float[] windCurve;
+		final float[] gravityCurve;
+		final float[] transparencyCurve;
+		final float[] tintCurve;
+
+		float x, y;
+		float accumulator;
+		float delay, delayTimer;
+		float duration, durationTimer;
+		int emission, emissionDiff;
+		float emissionDelta;
+		int lifeMin, lifeDiffMax;
+		int lifeOffsetMin, lifeOffsetDiff;
+		float spawnWidth, spawnWidthDiff;
+		float spawnHeight, spawnHeightDiff;
+		boolean firstUpdate;
+		boolean allowCompletion;
+
+		int count;
+		final float[] posX, posY;
+		final int[] life, currentLife;
+		final float[] velocity, velocityDiff;
+		final float[] angle, angleDiff, angleCos, angleSin;
+		final float[] scale, scaleDiff;
+		final float[] rotation, rotationDiff;
+		final float[] wind, windDiff;
+		final float[] gravity, gravityDiff;
+		final float[] transparency, transparencyDiff;
+		final float[] currentScale, currentRotation;
+		final float[] color;
+		final float[] vertices;
+	}
+
+	private final static int CURVE_SIZE = 64;
+	private final static int VERTICES_PER_PARTICLE = 20;
+
+	private final Emitter[] emitters;
+	private final int sharedTextureHandle;
+	private final float[] extent;
+}
@@ -0,0 +1,63 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
+
+
+
+/**
+ * Batch item for rendering a data oriented {@link ParticleSystem}.
+ * <p/>
+ * Rendering only emits the particle vertices, particle systems are advanced by calling their <code>update</code> before rendering.
+ */
+public class ParticleSystemBatchItem extends AbstractBatchItem implements Pool.Poolable {
+	public ParticleSystemBatchItem() {
+		setBlendMode(DefaultBlendMode.DEFAULT);
+	}
+
+	/**
+	 * Prepares this item for returning to its item pool.
+	 */
+	@Override
+	public void reset() {
+		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
+		particleSystem = null;
+		textureHandle = 0;
+		updateSortKey();
+	}
+
+	public void setParticleSystem(ParticleSystem particleSystem) {
+		this.particleSystem = particleSystem;
+		textureHandle = particleSystem != null ? particleSystem.getSharedTextureHandle() : 0;
+		updateSortKey();
+	}
+
+	public ParticleSystem getParticleSystem() {
+		return particleSystem;
+	}
+
+	/**
+	 * Returns the bounds of all live particles, which are computed from the particles on each call.
+	 */
+	@Override
+	public boolean getBounds(Rectangle bounds) {
+		return particleSystem != null && particleSystem.getBounds(bounds);
+	}
+
+	@Override
+	public void render(BatchRenderState state, long time) {
+		state.setShader(null);
+		particleSystem.draw(state);
+	}
+
+	@Override
+	public int getTextureHandle() {
+		return textureHandle;
+	}
+
+	private ParticleSystem particleSystem;
+	private int textureHandle;
+}
@@ -0,0 +1,235 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
+
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+
+
+/**
+ * Advances particle effects ahead of rendering, in parallel on the threads of a fork join pool.
+ * <p/>
+ * Particle definitions added to a stage are simulated by <code>update</code> according to their update intervals,
+ * particle batch items drawing them only emit the already simulated particles, see {@link ParticleBatchItem}.
+ * Thus, simulating many effects no longer blocks the render thread and effects are updated even while culled.
+ * <br/>Call <code>update</code> once per frame before rendering the queue, e.g. from the game thread of a
+ * {@link de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderPipeline} before handing over the queue.
+ * Effects must not be drawn while updating.
+ * <p/>
+ * Effects completing during an update are marked for removal and dropped from the stage by the next update.
+ * <p/>
+ * Particle emitters draw random numbers from the unsynchronized generator <code>MathUtils.random</code>.
+ * While updating in parallel, the stage replaces it with a generator keeping a separate sequence per thread
+ * and restores it afterwards, so parallel updates are not reproducible by seeding <code>MathUtils.random</code>.
+ * Other threads drawing from <code>MathUtils.random</code> meanwhile, e.g. a render thread emitting particles of unstaged effects,
+ * get a sequence of their own as well.
+ */
+public class ParticleUpdateStage {
+	public ParticleUpdateStage() {
+		particleDefs = new Array<ParticleDef>(false, 64, ParticleDef.class);
+		updateTasks = new ArrayList<ForkJoinTask<?>>();
+		taskParticles = new int[1];
+		minBatchSize = 8;
+	}
+
+	/**
+	 * Adds a particle definition to be simulated by this stage.
+	 *
+	 * @param particleDef particle definition, must not be added to another stage
+	 */
+	public void add(ParticleDef particleDef) {
+		if (particleDef.isStaged()) {
+			throw new IllegalStateException(particleDef + " already added to an update stage");
+		}
+		particleDef.setStaged(true);
+		particleDefs.add(particleDef);
+	}
+
+	/**
+	 * Removes a particle definition, it is updated while drawing again.
+	 *
+	 * @param particleDef particle definition
+	 */
+	public void remove(ParticleDef particleDef) {
+		if (particleDefs.removeValue(particleDef, true)) {
+			particleDef.setStaged(false);
+		}
+	}
+
+	/**
+	 * Returns the number of particle definitions currently simulated by this stage.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return particleDefs.size;
+	}
+
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Specifies the minimal number of effects updated by a single task.
+	 * <br/>Stages holding fewer effects are updated on the calling thread only.
+	 *
+	 * @param minBatchSize minimal number of effects per task; 8 by default
+	 */
+	public void setMinBatchSize(int minBatchSize) {
+		if (minBatchSize <= 0) {
+			throw new IllegalArgumentException("min batch size must be > 0");
+		}
+		this.minBatchSize = minBatchSize;
+	}
+
+	/**
+	 * Advances all particle effects whose update interval elapsed.
+	 * <br/>Blocks until all effects are updated.
+	 *
+	 * @param time current time in ns
+	 */
+	public void update(long time) {
+		long start = System.nanoTime();
+		try {
+			updateAll(time);
+		}
+		finally {
+			updateNanos = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Returns the number of effects advanced by the last <code>update</code>.
+	 *
+	 * @return
+	 */
+	public int getUpdatedCount() {
+		return updatedCount;
+	}
+
+	/**
+	 * Returns the number of live particles of the effects advanced by the last <code>update</code>.
+	 *
+	 * @return
+	 */
+	public int getUpdatedParticleCount() {
+		return updatedParticles;
+	}
+
+	/**
+	 * Returns the time spent by the last <code>update</code>, e.g. for feeding a {@link ParticleBudget}.
+	 *
+	 * @return update time in ns
+	 */
+	public long getUpdateNanos() {
+		return updateNanos;
+	}
+
+	private void updateAll(long time) {
+		dropRemoved();
+
+		int count = particleDefs.size;
+		ParticleDef[] defs = particleDefs.items;
+		updatedCount = 0;
+		updatedParticles = 0;
+		if (count < minBatchSize * 2) {
+			int[] taskParticles = this.taskParticles;
+			updatedCount = update(defs, 0, count, time, taskParticles, 0);
+			updatedParticles = taskParticles[0];
+			return;
+		}
+
+		ForkJoinPool forkJoinPool = this.forkJoinPool != null ? this.forkJoinPool : ForkJoinPool.commonPool();
+		int batchSize = Math.max(minBatchSize, (count + forkJoinPool.getParallelism() * 4 - 1) / (forkJoinPool.getParallelism() * 4));
+		int taskCount = (count + batchSize - 1) / batchSize;
+		if (taskParticles.length < taskCount) {
+			taskParticles = new int[taskCount];
+		}
+		int[] taskParticles = this.taskParticles;
+		List<ForkJoinTask<?>> updateTasks = this.updateTasks;
+		for (int t = 0; t < taskCount; t++) {
+			int task = t;
+			int from = t * batchSize;
+			int to = Math.min(from + batchSize, count);
+			updateTasks.add(ForkJoinTask.adapt(() -> update(defs, from, to, time, taskParticles, task)));
+		}
+		ThreadRandom.install();
+		try {
+			forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(updateTasks)));
+			for (int t = 0; t < taskCount; t++) {
+				updatedCount += (Integer)updateTasks.get(t).join();
+				updatedParticles += taskParticles[t];
+			}
+		}
+		finally {
+			ThreadRandom.uninstall();
+			updateTasks.clear();
+		}
+	}
+
+	/**
+	 * Advances the effects of the given range, storing the number of their live particles in <code>particles[task]</code>.
+	 *
+	 * @return number of effects advanced
+	 */
+	private static int update(ParticleDef[] defs, int from, int to, long time, int[] particles, int task) {
+		int updated = 0;
+		int updatedParticles = 0;
+		for (int i = from; i < to; i++) {
+			ParticleDef particleDef = defs[i];
+			if (particleDef.isRemove()) {
+				continue;
+			}
+			if (particleDef.getLastUpateTime() == 0) {
+				particleDef.setLastUpdateTime(time);
+			}
+
+			long dns = time - particleDef.getLastUpateTime();
+			if (dns >= particleDef.getUpdateInterval()) {
+				particleDef.setLastUpdateTime(time);
+				ParticleEffect effect = particleDef.getEffect();
+				effect.update((float)dns / (float)SECS_AS_NANO);
+				if (effect.isComplete()) {
+					particleDef.setRemove(true);
+				}
+				Array<ParticleEmitter> emitters = effect.getEmitters();
+				for (int e = 0; e < emitters.size; e++) {
+					updatedParticles += emitters.get(e).getActiveCount();
+				}
+				updated++;
+			}
+		}
+		particles[task] = updatedParticles;
+		return updated;
+	}
+
+	private void dropRemoved() {
+		for (int i = particleDefs.size - 1; i >= 0; i--) {
+			ParticleDef particleDef = particleDefs.get(i);
+			if (particleDef.isRemove()) {
+				particleDef.setStaged(false);
+				particleDefs.removeIndex(i);
+			}
+		}
+	}
+
+	private final static long SECS_AS_NANO = 1000000000L;
+
+	private final Array<ParticleDef> particleDefs;
+	private final List<ForkJoinTask<?>> updateTasks;
+	private int[] taskParticles;
+	private ForkJoinPool forkJoinPool;
+	private int minBatchSize;
+	private int updatedCount;
+	private int updatedParticles;
+	private long updateNanos;
+}
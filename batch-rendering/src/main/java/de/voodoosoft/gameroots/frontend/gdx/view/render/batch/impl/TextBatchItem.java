@@ -4,6 +4,7 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
 
 
 
@@ -15,23 +16,38 @@ public class TextBatchItem extends AbstractBatchItem implements Pool.Poolable {
 	@Override
 	public void reset() {
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
 		x = 0;
 		y = 0;
 		text = null;
-		font = null;
+		setFont(null);
 		color = null;
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
+	public void render(BatchRenderState state, long time) {
+		SpriteBatch batch = state.getBatch();
 		if (color != null) {
 			font.setColor(color);
 		}
 		font.draw(batch, text, x, y);
 	}
 
+	/**
+	 * Sets the font, its first page texture is used for sorting.
+	 *
+	 * @param font
+	 */
 	public void setFont(BitmapFont font) {
 		this.font = font;
+		textureHandle = font != null ? font.getRegion().getTexture().getTextureObjectHandle() : 0;
+		updateSortKey();
+	}
+
+	@Override
+	public int getTextureHandle() {
+		return textureHandle;
 	}
 
 	public void setText(String text) {
@@ -51,4 +67,5 @@ public class TextBatchItem extends AbstractBatchItem implements Pool.Poolable {
 	private float x, y;
 	private String text;
 	private BitmapFont font;
+	private int textureHandle;
 }
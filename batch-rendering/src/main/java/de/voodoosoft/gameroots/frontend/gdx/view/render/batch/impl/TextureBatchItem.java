@@ -2,10 +2,12 @@ package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Pool;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.LayerCache;
 
 
 
@@ -39,6 +41,7 @@ public class TextureBatchItem extends AbstractBatchItem implements Pool.Poolable
 	@Override
 	public void reset() {
 		textureRegion = null;
+		textureHandle = 0;
 		color = null;
 		width = -1;
 		height = -1;
@@ -46,6 +49,8 @@ public class TextureBatchItem extends AbstractBatchItem implements Pool.Poolable
 		xOrigin = -1;
 		yOrigin = -1;
 		setBlendMode(DefaultBlendMode.DEFAULT);
+		setDepth(0);
+		setPostLighting(false);
 	}
 
 	public void setLocation(float x, float y) {
@@ -90,6 +95,8 @@ public class TextureBatchItem extends AbstractBatchItem implements Pool.Poolable
 
 	public void setTextureRegion(TextureRegion textureRegion) {
 		this.textureRegion = textureRegion;
+		textureHandle = textureRegion != null ? textureRegion.getTexture().getTextureObjectHandle() : 0;
+		updateSortKey();
 	}
 
 	public TextureRegion getTextureRegion() {
@@ -105,29 +112,12 @@ public class TextureBatchItem extends AbstractBatchItem implements Pool.Poolable
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
-		if (getLastShaderProgram() != null) {
-			batch.setShader(null);
-			setLastShaderProgram(null);
-		}
-
-		if (isBlending()) {
-			batch.enableBlending();
-			BlendMode blendMode = getBlendMode();
-			if (!blendMode.equals(DefaultBlendMode.NONE)) {
-				batch.setBlendFunction(blendMode.getSrcFunction(), blendMode.getDestFunction());
-			}
-		}
-		else {
-			batch.disableBlending();
-		}
-		if (color != null) {
-			batch.setColor(color);
-		}
-		else {
-			batch.setColor(Color.WHITE);
-		}
+	public void render(BatchRenderState state, long time) {
+		state.setShader(null);
+		applyBlendMode(state);
+		state.setColor(color);
 
+		SpriteBatch batch = state.getBatch();
 		if (rotation != 0) {
 			if (xOrigin != -1 && yOrigin != -1) {
 				batch.draw(textureRegion, x, y, xOrigin, yOrigin, width, height, 1, 1, rotation);
@@ -148,18 +138,42 @@ public class TextureBatchItem extends AbstractBatchItem implements Pool.Poolable
 	}
 
 	@Override
-	public int compareTo(BatchRenderItem otherItem) {
-		int result = super.compareTo(otherItem);
-		if (result == 0) {
-			if (otherItem instanceof TextureBatchItem) {
-				TextureBatchItem o = (TextureBatchItem)otherItem;
-				int thisHandle = this.getTextureRegion().getTexture().getTextureObjectHandle();
-				int otherHandle = o.getTextureRegion().getTexture().getTextureObjectHandle();
-				result = Integer.compare(thisHandle, otherHandle);
-			}
+	public boolean cache(LayerCache cache) {
+		cache.setState(isBlending() ? getBlendMode() : null, null);
+		SpriteCache spriteCache = cache.getSpriteCache();
+		spriteCache.setColor(color != null ? color : Color.WHITE);
+
+		float w = width != -1 ? width : textureRegion.getRegionWidth();
+		float h = height != -1 ? height : textureRegion.getRegionHeight();
+		if (rotation != 0 && xOrigin != -1 && yOrigin != -1) {
+			spriteCache.add(textureRegion, x, y, xOrigin, yOrigin, w, h, 1, 1, rotation);
+		}
+		else {
+			spriteCache.add(textureRegion, x, y, w / 2f, h / 2f, w, h, 1, 1, rotation);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean getBounds(Rectangle bounds) {
+		if (textureRegion == null) {
+			return false;
 		}
 
-		return result;
+		float w = width != -1 ? width : textureRegion.getRegionWidth();
+		float h = height != -1 ? height : textureRegion.getRegionHeight();
+		if (rotation != 0 && xOrigin != -1 && yOrigin != -1) {
+			setRotatedBounds(bounds, x, y, xOrigin, yOrigin, w, h, rotation);
+		}
+		else {
+			setRotatedBounds(bounds, x, y, w / 2f, h / 2f, w, h, rotation);
+		}
+		return true;
+	}
+
+	@Override
+	public int getTextureHandle() {
+		return textureHandle;
 	}
 
 	private Color color;
@@ -167,5 +181,6 @@ public class TextureBatchItem extends AbstractBatchItem implements Pool.Poolable
 	private float width, height;
 	private float xOrigin, yOrigin;
 	private TextureRegion textureRegion;
+	private int textureHandle;
 	private float rotation;
 }
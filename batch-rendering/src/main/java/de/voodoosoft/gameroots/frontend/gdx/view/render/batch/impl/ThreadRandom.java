@@ -0,0 +1,91 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+
+import java.util.Random;
+
+
+
+/**
+ * Random number generator handing each thread its own libGDX generator.
+ * <p/>
+ * Installed as <code>MathUtils.random</code> by {@link ParticleUpdateStage} while updating in parallel,
+ * since particle emitters draw all their random numbers from there and <code>RandomXS128</code> is not thread safe.
+ * <br/>Seeding affects the generator of the calling thread only.
+ */
+final class ThreadRandom extends Random {
+	private ThreadRandom() {
+		generators = ThreadLocal.withInitial(RandomXS128::new);
+	}
+
+	/**
+	 * Replaces <code>MathUtils.random</code> until the matching <code>uninstall</code>, installs may be nested by several stages.
+	 */
+	static synchronized void install() {
+		if (installs++ == 0) {
+			replaced = MathUtils.random;
+			MathUtils.random = INSTANCE;
+		}
+	}
+
+	/**
+	 * Restores the generator replaced by the first <code>install</code> once all installs are undone.
+	 */
+	static synchronized void uninstall() {
+		if (--installs == 0) {
+			MathUtils.random = replaced;
+			replaced = null;
+		}
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		// called by the super constructor before the generators exist
+		if (generators != null) {
+			generators.get().setSeed(seed);
+		}
+	}
+
+	@Override
+	protected int next(int bits) {
+		return generators.get().nextInt() >>> (32 - bits);
+	}
+
+	@Override
+	public int nextInt() {
+		return generators.get().nextInt();
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		return generators.get().nextInt(bound);
+	}
+
+	@Override
+	public long nextLong() {
+		return generators.get().nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return generators.get().nextDouble();
+	}
+
+	@Override
+	public float nextFloat() {
+		return generators.get().nextFloat();
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return generators.get().nextBoolean();
+	}
+
+	private final static ThreadRandom INSTANCE = new ThreadRandom();
+
+	private static int installs;
+	private static Random replaced;
+
+	private final ThreadLocal<RandomXS128> generators;
+}
@@ -1,14 +1,17 @@
 package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Pool;
-import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BlendMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.LayerCache;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortKey;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 
 
@@ -17,19 +20,48 @@ import java.util.Objects;
  */
 public class VerticeBatchItem extends AbstractBatchItem implements Pool.Poolable  {
 	public static class VerticeRegion {
-		public TextureRegion textureRegion;
 		public float[] vertices;
+
+		private VerticeRegion(VerticeBatchItem item, int index) {
+			this.item = item;
+			this.index = index;
+			vertices = new float[SPRITE_SIZE];
+		}
+
+		public TextureRegion getTextureRegion() {
+			return textureRegion;
+		}
+
+		/**
+		 * Sets the texture region of these vertices, keeping the sort key of the item up to date.
+		 *
+		 * @param textureRegion
+		 */
+		public void setTextureRegion(TextureRegion textureRegion) {
+			this.textureRegion = textureRegion;
+			if (index == 0) {
+				item.updateSortKey();
+			}
+		}
+
+		private final VerticeBatchItem item;
+		private final int index;
+		private TextureRegion textureRegion;
 	}
 
 	public VerticeBatchItem() {
+		setBlendMode(DefaultBlendMode.NONE);
 		vertices = new ArrayList<VerticeRegion>(MAX_REGIONS);
 		for (int i = 0; i < MAX_REGIONS; i++) {
-			VerticeRegion verticedRegion = new VerticeRegion();
-			verticedRegion.vertices = new float[SPRITE_SIZE];
-			vertices.add(verticedRegion);
+			vertices.add(new VerticeRegion(this, i));
 		}
 	}
 
+	/**
+	 * Returns the next vertice region, its texture region must be assigned by <code>setTextureRegion</code>.
+	 *
+	 * @return vertice region or null if there is no more region left
+	 */
 	public VerticeRegion nextVertices() {
 		if (verticeIdx >= MAX_REGIONS-1) {
 			return null;
@@ -38,16 +70,35 @@ public class VerticeBatchItem extends AbstractBatchItem implements Pool.Poolable
 		return vertices.get(verticeIdx++);
 	}
 
+	/**
+	 * Returns the next vertice region, drawing the given texture region.
+	 *
+	 * @param textureRegion texture region of the vertices
+	 * @return vertice region or null if there is no more region left
+	 */
+	public VerticeRegion nextVertices(TextureRegion textureRegion) {
+		VerticeRegion verticeRegion = nextVertices();
+		if (verticeRegion != null) {
+			verticeRegion.setTextureRegion(textureRegion);
+		}
+		return verticeRegion;
+	}
+
 	/**
 	 * Prepares this item for returning to its item pool.
 	 */
 	@Override
 	public void reset() {
 		verticeIdx = 0;
+		shaderProgram = null;
+		setDepth(0);
+		setPostLighting(false);
+		updateSortKey();
 	}
 
 	public void setShaderProgram(ShaderProgram shaderProgram) {
 		this.shaderProgram = shaderProgram;
+		updateSortKey();
 	}
 
 	public ShaderProgram getShaderProgram() {
@@ -55,23 +106,58 @@ public class VerticeBatchItem extends AbstractBatchItem implements Pool.Poolable
 	}
 
 	@Override
-	public void render(SpriteBatch batch, long time) {
-		if (!Objects.equals(getLastShaderProgram(), shaderProgram)) {
-			batch.setShader(shaderProgram);
-			setLastShaderProgram(shaderProgram);
+	public int getTextureHandle() {
+		TextureRegion textureRegion = verticeIdx > 0 ? vertices.get(0).textureRegion : null;
+		return textureRegion != null ? textureRegion.getTexture().getTextureObjectHandle() : 0;
+	}
+
+	@Override
+	protected int getShaderId() {
+		return SortKey.shaderId(shaderProgram);
+	}
+
+	@Override
+	public boolean cache(LayerCache cache) {
+		cache.setState(isBlending() ? getBlendMode() : null, shaderProgram);
+		SpriteCache spriteCache = cache.getSpriteCache();
+		for (int i = 0; i < verticeIdx; i++) {
+			VerticeRegion verticeRegion = vertices.get(i);
+			spriteCache.add(verticeRegion.textureRegion.getTexture(), verticeRegion.vertices, 0, verticeRegion.vertices.length);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean getBounds(Rectangle bounds) {
+		if (verticeIdx == 0) {
+			return false;
 		}
 
-		if (isBlending()) {
-			BlendMode blendMode = getBlendMode();
-			if (!blendMode.equals(DefaultBlendMode.NONE)) {
-				batch.setBlendFunction(blendMode.getSrcFunction(), blendMode.getDestFunction());
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < verticeIdx; i++) {
+			float[] regionVertices = vertices.get(i).vertices;
+			for (int v = 0; v < regionVertices.length; v += VERTEX_SIZE) {
+				float x = regionVertices[v];
+				float y = regionVertices[v + 1];
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, y);
+				maxX = Math.max(maxX, x);
+				maxY = Math.max(maxY, y);
 			}
-			batch.enableBlending();
-		}
-		else {
-			batch.disableBlending();
 		}
+		bounds.set(minX, minY, maxX - minX, maxY - minY);
+		return true;
+	}
+
+	@Override
+	public void render(BatchRenderState state, long time) {
+		state.setShader(shaderProgram);
+		applyBlendMode(state);
 
+		SpriteBatch batch = state.getBatch();
 		for (int i = 0; i < verticeIdx; i++) {
 			VerticeRegion verticeRegion = vertices.get(i);
 			batch.draw(verticeRegion.textureRegion.getTexture(), verticeRegion.vertices, 0, verticeRegion.vertices.length);
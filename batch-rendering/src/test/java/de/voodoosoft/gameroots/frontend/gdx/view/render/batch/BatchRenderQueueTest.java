@@ -0,0 +1,103 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Pool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+
+public class BatchRenderQueueTest {
+	@Before
+	public void setUp() {
+		TestGdx.init();
+		batch = new SpriteBatch();
+		queue = new BatchRenderQueue(16, SortKey.MAX_LAYERS * 2);
+		queue.addItemClass(CountingItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new CountingItem();
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		queue.dispose();
+		batch.dispose();
+	}
+
+	@Test
+	public void testComparatorSortsBeyondKeyLayers() {
+		CountingItem item = queue.obtainItem(CountingItem.class);
+		item.layer = SortKey.MAX_LAYERS + 10;
+		queue.queueItem(item);
+
+		batch.begin();
+		queue.render(batch, 1);
+		batch.end();
+		assertEquals(1, item.renders);
+		queue.reset();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testKeySortRequiresKeyLayers() {
+		queue.setSortMode(SortMode.RADIX);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCaptureRequiresKeyLayers() {
+		queue.setRenderCapture(new RenderCapture(1, 16));
+	}
+
+	@Test
+	public void testCaptureRecordsLayersOncePerFrame() {
+		BatchRenderQueue captureQueue = new BatchRenderQueue(16, 4);
+		captureQueue.addItemClass(CountingItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new CountingItem();
+			}
+		});
+		RenderCapture capture = new RenderCapture(4, 16);
+		captureQueue.setRenderCapture(capture);
+		captureQueue.queueItem(captureQueue.obtainItem(CountingItem.class));
+
+		// drawn twice, e.g. to two views
+		batch.begin();
+		captureQueue.render(batch, 1);
+		captureQueue.render(batch, 1);
+		batch.end();
+		captureQueue.reset();
+
+		assertEquals(1, capture.getFrameCount());
+		assertEquals(1, capture.getItemCount(0));
+		captureQueue.dispose();
+	}
+
+	private static final class CountingItem implements BatchRenderItem {
+		@Override
+		public int getLayer() {
+			return layer;
+		}
+
+		@Override
+		public void render(SpriteBatch batch, long time) {
+			renders++;
+		}
+
+		@Override
+		public int compareTo(BatchRenderItem otherItem) {
+			return 0;
+		}
+
+		int layer;
+		int renders;
+	}
+
+	private SpriteBatch batch;
+	private BatchRenderQueue queue;
+}
@@ -0,0 +1,69 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+
+public class BatchRenderStateTest {
+	@Before
+	public void setUp() {
+		texture = TestGdx.createTexture(16, 16);
+		batch = new SpriteBatch();
+		shapeRenderer = new ShapeRenderer();
+		state = new BatchRenderState();
+	}
+
+	@After
+	public void tearDown() {
+		shapeRenderer.dispose();
+		batch.dispose();
+		texture.dispose();
+	}
+
+	@Test
+	public void testShapePhaseKeepsRenderCalls() {
+		batch.begin();
+		state.begin(batch);
+		batch.draw(texture, 0, 0);
+
+		// flushes the sprite, then two shape draw calls due to the blend function change
+		state.beginShapes(shapeRenderer, ShapeRenderer.ShapeType.Filled, GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		shapeRenderer.rect(0, 0, 10, 10);
+		state.beginShapes(shapeRenderer, ShapeRenderer.ShapeType.Filled, GL20.GL_ONE, GL20.GL_ONE);
+		shapeRenderer.rect(0, 0, 10, 10);
+
+		state.getBatch().draw(texture, 0, 0);
+		assertTrue(batch.isDrawing());
+		batch.end();
+		assertEquals(4, batch.renderCalls);
+	}
+
+	@Test
+	public void testShapePhaseRestoresEndedBatch() {
+		batch.begin();
+		batch.draw(texture, 0, 0);
+		batch.end();
+		state.begin(batch);
+
+		state.beginShapes(shapeRenderer, ShapeRenderer.ShapeType.Line, 0, 0);
+		shapeRenderer.line(0, 0, 10, 10);
+		state.endShapes();
+		assertFalse(batch.isDrawing());
+		assertEquals(2, batch.renderCalls);
+	}
+
+	private Texture texture;
+	private SpriteBatch batch;
+	private ShapeRenderer shapeRenderer;
+	private BatchRenderState state;
+}
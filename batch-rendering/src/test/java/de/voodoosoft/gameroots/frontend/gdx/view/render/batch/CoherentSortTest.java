@@ -0,0 +1,80 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+
+public class CoherentSortTest {
+	@Test
+	public void testEqualKeysKeepQueueOrder() {
+		assertQueueOrderKept(1f);
+	}
+
+	@Test
+	public void testEqualKeysKeepQueueOrderOnFullSort() {
+		// no inversions allowed, so every disordered frame falls back to the radix sort
+		assertQueueOrderKept(0f);
+	}
+
+	@Test
+	public void testReorderedTiesFromLastFrame() {
+		CoherentSort coherentSort = new CoherentSort(new RadixSort());
+		int[] order = new int[3];
+
+		long[] keys = {5, 3, 3};
+		Object[] items = {"x", "a", "b"};
+		coherentSort.sort(keys, items, 3, order, 0);
+		assertArrayEquals(new Object[] {"a", "b", "x"}, items);
+
+		// same items queued in a different order, the last frame's permutation moves "b" ahead of "a"
+		keys = new long[] {3, 3, 5};
+		items = new Object[] {"a", "b", "x"};
+		coherentSort.sort(keys, items, 3, order, 3);
+		assertArrayEquals(new Object[] {"a", "b", "x"}, items);
+	}
+
+	private void assertQueueOrderKept(float inversionLimit) {
+		CoherentSort coherentSort = new CoherentSort(new RadixSort());
+		coherentSort.setInversionLimit(inversionLimit);
+		Random rnd = new Random(4711);
+		int count = 200;
+		long[] queueKeys = new long[count];
+		for (int i = 0; i < count; i++) {
+			queueKeys[i] = rnd.nextInt(8);
+		}
+
+		int[] order = new int[count];
+		int lastCount = 0;
+		long[] keys = new long[count];
+		Object[] items = new Object[count];
+		for (int frame = 0; frame < 10; frame++) {
+			// keys change a little from frame to frame
+			for (int n = 0; n < 20; n++) {
+				queueKeys[rnd.nextInt(count)] = rnd.nextInt(8);
+			}
+			System.arraycopy(queueKeys, 0, keys, 0, count);
+			for (int i = 0; i < count; i++) {
+				items[i] = i;
+			}
+
+			coherentSort.sort(keys, items, count, order, lastCount);
+			lastCount = count;
+
+			for (int i = 1; i < count; i++) {
+				int previous = (Integer)items[i - 1];
+				int current = (Integer)items[i];
+				assertEquals(queueKeys[previous], keys[i - 1]);
+				assertTrue("frame " + frame + ": keys not sorted at " + i, keys[i - 1] <= keys[i]);
+				if (keys[i - 1] == keys[i]) {
+					assertTrue("frame " + frame + ": queue order of equal keys lost at " + i, previous < current);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleBatchItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleDef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+
+public class LayerTargetTest {
+	@Before
+	public void setUp() {
+		texture = TestGdx.createTexture(16, 16);
+		batch = new SpriteBatch();
+		queue = new BatchRenderQueue(4);
+		queue.addItemClass(ParticleBatchItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new ParticleBatchItem();
+			}
+		});
+		queue.addItemClass(RecordingItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new RecordingItem();
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		queue.dispose();
+		batch.dispose();
+		texture.dispose();
+	}
+
+	@Test
+	public void testParticlesKeepTargetBlending() {
+		queue.addLayerTarget(0, 1, new Rectangle(0, 0, 100, 100), 100, 100);
+
+		ParticleBatchItem particleItem = queue.obtainItem(ParticleBatchItem.class);
+		particleItem.setLayer(0);
+		particleItem.setParticleDef(createParticleDef());
+		queue.queueItem(particleItem);
+		RecordingItem recordingItem = queue.obtainItem(RecordingItem.class);
+		recordingItem.layer = 1;
+		queue.queueItem(recordingItem);
+
+		batch.begin();
+		queue.render(batch, 1);
+		batch.end();
+
+		// the particle effect set its blend function on the batch, which must not be flushed with it afterwards
+		assertEquals(-1, recordingItem.srcFunction);
+		assertEquals(-1, recordingItem.destFunction);
+		// the target was composited with premultiplied alpha
+		assertEquals(GL20.GL_ONE, batch.getBlendSrcFunc());
+		queue.reset();
+	}
+
+	@Test
+	public void testPartialRangeDrawsTargetLayersDirectly() {
+		LayerTarget layerTarget = queue.addLayerTarget(0, 1, new Rectangle(0, 0, 100, 100), 100, 100);
+		RecordingItem recordingItem = queue.obtainItem(RecordingItem.class);
+		recordingItem.layer = 1;
+		queue.queueItem(recordingItem);
+
+		batch.begin();
+		queue.render(batch, 1, 1, 1);
+		batch.end();
+
+		// drawn with the blend function of the batch instead of into the target
+		assertEquals(GL20.GL_SRC_ALPHA, recordingItem.srcFunction);
+		assertEquals(0, layerTarget.getHitCount() + layerTarget.getMissCount());
+		queue.reset();
+	}
+
+	private ParticleDef createParticleDef() {
+		ParticleEmitter emitter = new ParticleEmitter();
+		emitter.setMaxParticleCount(100);
+		emitter.setSprite(new Sprite(texture));
+		emitter.setAdditive(true);
+		emitter.getEmission().setHigh(100);
+		emitter.getLife().setHigh(1000);
+		emitter.getDuration().setLow(1000);
+		ParticleEffect template = new ParticleEffect();
+		template.getEmitters().add(emitter);
+
+		ParticleEffectPool.PooledEffect effect = new ParticleEffectPool(template, 1, 1).obtain();
+		effect.start();
+		return new ParticleDef(null, effect, 50, 50, 0);
+	}
+
+	/**
+	 * Records the blend function of the batch when being drawn.
+	 */
+	private static final class RecordingItem implements BatchRenderItem {
+		@Override
+		public int getLayer() {
+			return layer;
+		}
+
+		@Override
+		public void render(SpriteBatch batch, long time) {
+			srcFunction = batch.getBlendSrcFunc();
+			destFunction = batch.getBlendDstFunc();
+		}
+
+		@Override
+		public int compareTo(BatchRenderItem otherItem) {
+			return 0;
+		}
+
+		int layer;
+		int srcFunction;
+		int destFunction;
+	}
+
+	private Texture texture;
+	private SpriteBatch batch;
+	private BatchRenderQueue queue;
+}
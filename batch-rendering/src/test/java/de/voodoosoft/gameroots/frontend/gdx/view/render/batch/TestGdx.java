@@ -0,0 +1,195 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+
+
+/**
+ * Sets up LibGdx for tests running without display and GPU.
+ * <p/>
+ * GL calls are answered by a stand-in accepting all shaders and frame buffers and handing out unique handles,
+ * so sprite batches, textures and frame buffers can be created. Nothing is drawn.
+ */
+public final class TestGdx {
+	/**
+	 * Loads the LibGdx natives and installs the GL and graphics stand-ins once.
+	 */
+	public static synchronized void init() {
+		if (Gdx.gl != null) {
+			return;
+		}
+
+		GdxNativesLoader.load();
+		// managed GL resources are registered per application
+		Gdx.app = stub(Application.class);
+		Gdx.graphics = stub(Graphics.class);
+		GL20 gl = (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] {GL20.class}, (proxy, method, args) -> answerGL(method, args));
+		Gdx.gl = gl;
+		Gdx.gl20 = gl;
+	}
+
+	/**
+	 * Creates a texture with a unique texture handle and no content.
+	 *
+	 * @param width texture width
+	 * @param height texture height
+	 * @return
+	 */
+	public static Texture createTexture(int width, int height) {
+		init();
+		return new Texture(new BlankTextureData(width, height));
+	}
+
+	private static Object answerGL(Method method, Object[] args) {
+		switch (method.getName()) {
+			case "glGenTexture":
+			case "glGenBuffer":
+			case "glGenFramebuffer":
+			case "glGenRenderbuffer":
+			case "glCreateShader":
+			case "glCreateProgram":
+				return ++lastHandle;
+			case "glGenTextures":
+			case "glGenBuffers":
+			case "glGenFramebuffers":
+			case "glGenRenderbuffers": {
+				IntBuffer handles = (IntBuffer)args[1];
+				for (int i = 0; i < (Integer)args[0]; i++) {
+					handles.put(handles.position() + i, ++lastHandle);
+				}
+				return null;
+			}
+			case "glGetShaderiv":
+			case "glGetProgramiv": {
+				int pname = (Integer)args[1];
+				((IntBuffer)args[2]).put(0, pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS ? GL20.GL_TRUE : 0);
+				return null;
+			}
+			case "glCheckFramebufferStatus":
+				return GL20.GL_FRAMEBUFFER_COMPLETE;
+			default:
+				return defaultValue(method);
+		}
+	}
+
+	/**
+	 * Creates a stand-in answering all calls with default values.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type) {
+		return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return type.getSimpleName() + " stand-in";
+				default:
+					return defaultValue(method);
+			}
+		});
+	}
+
+	private static Object defaultValue(Method method) {
+		Class<?> type = method.getReturnType();
+		if (type == int.class) {
+			return 0;
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == float.class) {
+			return 0f;
+		}
+		if (type == String.class) {
+			return "";
+		}
+		return null;
+	}
+
+	/**
+	 * Texture data uploading nothing.
+	 */
+	private static final class BlankTextureData implements TextureData {
+		BlankTextureData(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public TextureDataType getType() {
+			return TextureDataType.Custom;
+		}
+
+		@Override
+		public boolean isPrepared() {
+			return true;
+		}
+
+		@Override
+		public void prepare() {
+		}
+
+		@Override
+		public Pixmap consumePixmap() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean disposePixmap() {
+			return false;
+		}
+
+		@Override
+		public void consumeCustomData(int target) {
+		}
+
+		@Override
+		public int getWidth() {
+			return width;
+		}
+
+		@Override
+		public int getHeight() {
+			return height;
+		}
+
+		@Override
+		public Pixmap.Format getFormat() {
+			return Pixmap.Format.RGBA8888;
+		}
+
+		@Override
+		public boolean useMipMaps() {
+			return false;
+		}
+
+		@Override
+		public boolean isManaged() {
+			return false;
+		}
+
+		private final int width;
+		private final int height;
+	}
+
+	private TestGdx() {
+	}
+
+	private static int lastHandle;
+}
@@ -0,0 +1,193 @@
+package de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.TestGdx;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+
+/**
+ * Compares particle systems with libGDX particle effects simulating the same emitter definition.
+ * <p/>
+ * Random numbers are drawn in a different order, so single particles differ and only averages over many frames are compared.
+ */
+public class ParticleSystemTest {
+	@BeforeClass
+	public static void setUpTexture() {
+		texture = TestGdx.createTexture(16, 16);
+	}
+
+	@AfterClass
+	public static void disposeTexture() {
+		texture.dispose();
+		texture = null;
+	}
+
+	@Test
+	public void testParticleCountMatchesLibGdx() {
+		ParticleEffect template = createTemplate();
+		float[] gdx = simulateGdx(template);
+		float[] system = simulateSystem(template);
+
+		assertEquals("average particle count", gdx[COUNT], system[COUNT], gdx[COUNT] * 0.02f);
+	}
+
+	@Test
+	public void testBoundsMatchLibGdx() {
+		ParticleEffect template = createTemplate();
+		float[] gdx = simulateGdx(template);
+		float[] system = simulateSystem(template);
+
+		float spread = gdx[MAX_X] - gdx[MIN_X];
+		assertTrue("libGDX effect spreads", spread > 100);
+		float tolerance = spread * 0.02f;
+		assertEquals("average left bound", gdx[MIN_X], system[MIN_X], tolerance);
+		assertEquals("average bottom bound", gdx[MIN_Y], system[MIN_Y], tolerance);
+		assertEquals("average right bound", gdx[MAX_X], system[MAX_X], tolerance);
+		assertEquals("average top bound", gdx[MAX_Y], system[MAX_Y], tolerance);
+	}
+
+	@Test
+	public void testCompletesLikeLibGdx() {
+		ParticleEffect template = createTemplate();
+		ParticleEffect effect = new ParticleEffect(template);
+		ParticleSystem system = new ParticleSystem(template);
+		effect.start();
+		system.start();
+		for (int frame = 0; frame < 60; frame++) {
+			effect.update(FRAME_SECS);
+			system.update(FRAME_SECS);
+		}
+
+		effect.allowCompletion();
+		system.allowCompletion();
+		int gdxFrames = framesToComplete(effect, null);
+		int systemFrames = framesToComplete(null, system);
+		// the last particles live up to one second
+		assertTrue("libGDX effect completes", gdxFrames < 200);
+		assertTrue("particle system completes", systemFrames < 200);
+		assertEquals(gdxFrames, systemFrames, 10);
+	}
+
+	private static int framesToComplete(ParticleEffect effect, ParticleSystem system) {
+		int frames = 0;
+		while (frames < 200 && !(effect != null ? effect.isComplete() : system.isComplete())) {
+			if (effect != null) {
+				effect.update(FRAME_SECS);
+			}
+			else {
+				system.update(FRAME_SECS);
+			}
+			frames++;
+		}
+		return frames;
+	}
+
+	private static float[] simulateGdx(ParticleEffect template) {
+		MathUtils.random.setSeed(SEED);
+		ParticleEffect effect = new ParticleEffect(template);
+		effect.setPosition(X, Y);
+		effect.start();
+		BoundingBox box = new BoundingBox();
+		float[] sums = new float[5];
+		for (int frame = 0; frame < FRAMES; frame++) {
+			effect.update(FRAME_SECS);
+			if (frame >= WARM_UP_FRAMES) {
+				ParticleEmitter emitter = effect.getEmitters().first();
+				box.set(emitter.getBoundingBox());
+				sums[COUNT] += emitter.getActiveCount();
+				sums[MIN_X] += box.min.x;
+				sums[MIN_Y] += box.min.y;
+				sums[MAX_X] += box.max.x;
+				sums[MAX_Y] += box.max.y;
+			}
+		}
+		return average(sums);
+	}
+
+	private static float[] simulateSystem(ParticleEffect template) {
+		MathUtils.random.setSeed(SEED);
+		ParticleSystem system = new ParticleSystem(template);
+		system.setPosition(X, Y);
+		system.start();
+		Rectangle bounds = new Rectangle();
+		float[] sums = new float[5];
+		for (int frame = 0; frame < FRAMES; frame++) {
+			system.update(FRAME_SECS);
+			if (frame >= WARM_UP_FRAMES) {
+				assertTrue(system.getBounds(bounds));
+				sums[COUNT] += system.getActiveCount();
+				sums[MIN_X] += bounds.x;
+				sums[MIN_Y] += bounds.y;
+				sums[MAX_X] += bounds.x + bounds.width;
+				sums[MAX_Y] += bounds.y + bounds.height;
+			}
+		}
+		return average(sums);
+	}
+
+	private static float[] average(float[] sums) {
+		for (int i = 0; i < sums.length; i++) {
+			sums[i] /= FRAMES - WARM_UP_FRAMES;
+		}
+		return sums;
+	}
+
+	private static ParticleEffect createTemplate() {
+		ParticleEmitter emitter = new ParticleEmitter();
+		emitter.setMaxParticleCount(300);
+		emitter.setSprite(new Sprite(texture, 0, 0, 16, 16));
+		emitter.setContinuous(true);
+		emitter.getDuration().setLow(1000);
+		emitter.getEmission().setHigh(200);
+		emitter.getLife().setHigh(1000);
+		emitter.getSpawnShape().setShape(ParticleEmitter.SpawnShape.square);
+		emitter.getSpawnWidth().setHigh(40);
+		emitter.getSpawnHeight().setHigh(20);
+		emitter.getVelocity().setActive(true);
+		emitter.getVelocity().setHigh(40, 80);
+		emitter.getAngle().setActive(true);
+		emitter.getAngle().setHigh(0, 360);
+		emitter.getScale().setHigh(8, 16);
+		emitter.getScale().setScaling(new float[] {1, 0.25f});
+		emitter.getScale().setTimeline(new float[] {0, 1});
+		emitter.getRotation().setActive(true);
+		emitter.getRotation().setHigh(0, 180);
+		emitter.getRotation().setScaling(new float[] {0, 1});
+		emitter.getRotation().setTimeline(new float[] {0, 1});
+		emitter.getGravity().setActive(true);
+		emitter.getGravity().setHigh(-20);
+		emitter.getTransparency().setHigh(1);
+		emitter.getTransparency().setScaling(new float[] {1, 0});
+		emitter.getTransparency().setTimeline(new float[] {0, 1});
+
+		ParticleEffect effect = new ParticleEffect();
+		effect.getEmitters().add(emitter);
+		return effect;
+	}
+
+	private final static float FRAME_SECS = 1 / 60f;
+	private final static int FRAMES = 600;
+	private final static int WARM_UP_FRAMES = 120;
+	private final static long SEED = 4711;
+	private final static float X = 100;
+	private final static float Y = 200;
+	private final static int COUNT = 0;
+	private final static int MIN_X = 1;
+	private final static int MIN_Y = 2;
+	private final static int MAX_X = 3;
+	private final static int MAX_Y = 4;
+
+	private static Texture texture;
+}
@@ -0,0 +1,103 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderQueue;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures complete render queue frames.
+ * <p/>
+ * <code>queueAndReset</code> covers obtaining, queueing and freeing items,
+ * <code>frame</code> additionally sorts and renders all items to a sprite batch backed by a GL stand-in,
+ * <code>preparedFrame</code> sorts all layers in parallel before rendering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchRenderQueueBenchmark {
+	@Param({"SPRITES", "MIXED"})
+	public BatchScene.Mix mix;
+
+	@Param({"20000"})
+	public int items;
+
+	@Param({"1", "64"})
+	public int layers;
+
+	@Param({"4", "64"})
+	public int textures;
+
+	@Param({"COMPARATOR", "RADIX", "ADAPTIVE"})
+	public SortMode sortMode;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		HeadlessGdx.init();
+		scene = new BatchScene(mix, items, layers, textures, SEED);
+		queue = scene.createQueue(sortMode);
+		batch = new SpriteBatch();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		batch.dispose();
+		scene.dispose();
+	}
+
+	@Benchmark
+	public void queueAndReset() {
+		scene.queueFrame(queue);
+		queue.reset();
+	}
+
+	@Benchmark
+	public int frame() {
+		scene.queueFrame(queue);
+		time += FRAME_TIME;
+		batch.begin();
+		queue.render(batch, time);
+		batch.end();
+		queue.reset();
+		return batch.renderCalls;
+	}
+
+	@Benchmark
+	public int preparedFrame() {
+		scene.queueFrame(queue);
+		queue.prepare();
+		time += FRAME_TIME;
+		batch.begin();
+		queue.render(batch, time);
+		batch.end();
+		queue.reset();
+		return batch.renderCalls;
+	}
+
+	private static final long SEED = 4711;
+	private static final long FRAME_TIME = 16666666l;
+
+	private BatchScene scene;
+	private BatchRenderQueue queue;
+	private SpriteBatch batch;
+	private long time;
+}
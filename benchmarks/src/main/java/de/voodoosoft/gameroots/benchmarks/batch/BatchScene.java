@@ -0,0 +1,360 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.NinePatch;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderQueue;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SpriteStream;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.NinePatchBatchItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleBatchItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleDef;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.TextureBatchItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.VerticeBatchItem;
+
+import java.util.Random;
+
+
+
+/**
+ * Reproducible scene of batch items for benchmarking render queues.
+ * <p/>
+ * Item types, layers, textures and locations are chosen randomly once.
+ * Each frame, the same items are obtained, set up and queued again, just like a game would do.
+ */
+public class BatchScene {
+	/**
+	 * Share of each item type in percent.
+	 */
+	public enum Mix {
+		SPRITES(100, 0, 0, 0),
+		PARTICLES(0, 0, 100, 0),
+		MIXED(84, 10, 4, 2);
+
+		Mix(int textures, int ninePatches, int particles, int vertices) {
+			this.textures = textures;
+			this.ninePatches = ninePatches;
+			this.particles = particles;
+			this.vertices = vertices;
+		}
+
+		final int textures;
+		final int ninePatches;
+		final int particles;
+		final int vertices;
+	}
+
+	enum ItemType {
+		TEXTURE, NINE_PATCH, PARTICLE, VERTICES
+	}
+
+	/**
+	 * Creates a new scene.
+	 *
+	 * @param mix item type distribution
+	 * @param itemCount number of items queued per frame
+	 * @param layerCount number of used layers
+	 * @param textureCount number of distinct textures
+	 * @param seed random seed
+	 */
+	public BatchScene(Mix mix, int itemCount, int layerCount, int textureCount, long seed) {
+		this.itemCount = itemCount;
+		this.layerCount = layerCount;
+		Random rnd = new Random(seed);
+
+		textures = new Texture[textureCount];
+		regions = new TextureRegion[textureCount * REGIONS_PER_TEXTURE];
+		ninePatches = new NinePatch[textureCount];
+		particleDefs = new ParticleDef[textureCount];
+		for (int i = 0; i < textureCount; i++) {
+			Texture texture = HeadlessGdx.createTexture(64, 64);
+			textures[i] = texture;
+			for (int r = 0; r < REGIONS_PER_TEXTURE; r++) {
+				regions[i * REGIONS_PER_TEXTURE + r] = new TextureRegion(texture, r * 16, 0, 16, 16);
+			}
+			ninePatches[i] = new NinePatch(regions[i * REGIONS_PER_TEXTURE], 4, 4, 4, 4);
+			particleDefs[i] = createParticleDef(texture, rnd);
+		}
+
+		types = new ItemType[itemCount];
+		layers = new int[itemCount];
+		regionIndices = new int[itemCount];
+		xs = new float[itemCount];
+		ys = new float[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			int percent = rnd.nextInt(100);
+			if (percent < mix.textures) {
+				types[i] = ItemType.TEXTURE;
+			}
+			else if (percent < mix.textures + mix.ninePatches) {
+				types[i] = ItemType.NINE_PATCH;
+			}
+			else if (percent < mix.textures + mix.ninePatches + mix.particles) {
+				types[i] = ItemType.PARTICLE;
+			}
+			else {
+				types[i] = ItemType.VERTICES;
+			}
+			layers[i] = rnd.nextInt(layerCount);
+			regionIndices[i] = rnd.nextInt(regions.length);
+			xs[i] = rnd.nextFloat() * WORLD_SIZE;
+			ys[i] = rnd.nextFloat() * WORLD_SIZE;
+		}
+
+		quad = new float[20];
+	}
+
+	/**
+	 * Creates a render queue with pools for all item types of this scene.
+	 *
+	 * @param sortMode sort mode of the queue
+	 * @return
+	 */
+	public BatchRenderQueue createQueue(SortMode sortMode) {
+		BatchRenderQueue queue = new BatchRenderQueue(layerCount);
+		queue.setSortMode(sortMode);
+		if (depthSorted) {
+			queue.setDepthRange(-WORLD_SIZE, 0);
+		}
+		textureType = queue.addItemClass(TextureBatchItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new TextureBatchItem();
+			}
+		});
+		ninePatchType = queue.addItemClass(NinePatchBatchItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new NinePatchBatchItem();
+			}
+		});
+		particleType = queue.addItemClass(ParticleBatchItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new ParticleBatchItem();
+			}
+		});
+		verticeType = queue.addItemClass(VerticeBatchItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new VerticeBatchItem();
+			}
+		});
+		return queue;
+	}
+
+	/**
+	 * Enables y-sorting, items further up are drawn first within their layer.
+	 * <br/>Must be called before <code>createQueue</code>.
+	 *
+	 * @param depthSorted
+	 */
+	public void setDepthSorted(boolean depthSorted) {
+		this.depthSorted = depthSorted;
+	}
+
+	/**
+	 * Moves all items vertically by a random step, wrapping around at the world borders.
+	 *
+	 * @param rnd random generator
+	 * @param maxStep maximal step in both directions
+	 */
+	public void moveItems(Random rnd, float maxStep) {
+		for (int i = 0; i < itemCount; i++) {
+			float y = ys[i] + (rnd.nextFloat() * 2 - 1) * maxStep;
+			ys[i] = y < 0 ? y + WORLD_SIZE : y >= WORLD_SIZE ? y - WORLD_SIZE : y;
+		}
+	}
+
+	/**
+	 * Obtains, sets up and queues all items of this scene.
+	 *
+	 * @param queue render queue created by <code>createQueue</code>
+	 */
+	public void queueFrame(BatchRenderQueue queue) {
+		for (int i = 0; i < itemCount; i++) {
+			queue.queueItem(obtainItem(queue, i));
+		}
+	}
+
+	/**
+	 * Creates a sprite stream with all regions of this scene registered.
+	 *
+	 * @return
+	 */
+	public SpriteStream createStream() {
+		SpriteStream stream = new SpriteStream(itemCount);
+		for (TextureRegion region : regions) {
+			stream.addRegion(region);
+		}
+		return stream;
+	}
+
+	/**
+	 * Adds all items of this scene to the given stream as plain sprites, regardless of their item type.
+	 *
+	 * @param stream sprite stream created by <code>createStream</code>
+	 */
+	public void queueFrame(SpriteStream stream) {
+		float color = Color.WHITE.toFloatBits();
+		for (int i = 0; i < itemCount; i++) {
+			TextureRegion region = regions[regionIndices[i]];
+			stream.add(layers[i], regionIndices[i], xs[i], ys[i], region.getRegionWidth(), region.getRegionHeight(), color);
+		}
+	}
+
+	/**
+	 * Creates all items of this scene without queueing them.
+	 *
+	 * @return
+	 */
+	public BatchRenderItem[] createItems() {
+		BatchRenderQueue queue = createQueue(SortMode.COMPARATOR);
+		BatchRenderItem[] items = new BatchRenderItem[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			items[i] = obtainItem(queue, i);
+		}
+		return items;
+	}
+
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	public void dispose() {
+		for (Texture texture : textures) {
+			texture.dispose();
+		}
+	}
+
+	private BatchRenderItem obtainItem(BatchRenderQueue queue, int i) {
+		int layer = layers[i];
+		TextureRegion region = regions[regionIndices[i]];
+		float x = xs[i];
+		float y = ys[i];
+
+		switch (types[i]) {
+			case TEXTURE:
+				TextureBatchItem textureItem = queue.obtainItem(textureType);
+				textureItem.setLayer(layer);
+				textureItem.setTextureRegion(region);
+				textureItem.setLocation(x, y);
+				textureItem.setColor(Color.WHITE);
+				textureItem.setDepth(depthSorted ? -y : 0);
+				return textureItem;
+
+			case NINE_PATCH:
+				NinePatchBatchItem ninePatchItem = queue.obtainItem(ninePatchType);
+				ninePatchItem.setLayer(layer);
+				ninePatchItem.setNinePatch(ninePatches[regionIndices[i] / REGIONS_PER_TEXTURE]);
+				ninePatchItem.setLocation(x, y);
+				ninePatchItem.setDimension(48, 32);
+				ninePatchItem.setDepth(depthSorted ? -y : 0);
+				return ninePatchItem;
+
+			case PARTICLE:
+				ParticleBatchItem particleItem = queue.obtainItem(particleType);
+				particleItem.setLayer(layer);
+				particleItem.setParticleDef(particleDefs[regionIndices[i] / REGIONS_PER_TEXTURE]);
+				particleItem.setOffsets(-x, -y);
+				particleItem.setDepth(depthSorted ? -y : 0);
+				return particleItem;
+
+			default:
+				VerticeBatchItem verticeItem = queue.obtainItem(verticeType);
+				verticeItem.setLayer(layer);
+				VerticeBatchItem.VerticeRegion verticeRegion = verticeItem.nextVertices(region);
+				fillQuad(verticeRegion.vertices, region, x, y);
+				verticeItem.setDepth(depthSorted ? -y : 0);
+				return verticeItem;
+		}
+	}
+
+	private void fillQuad(float[] vertices, TextureRegion region, float x, float y) {
+		float color = Color.WHITE.toFloatBits();
+		float x2 = x + region.getRegionWidth();
+		float y2 = y + region.getRegionHeight();
+		float[] quad = this.quad;
+		quad[0] = x;
+		quad[1] = y;
+		quad[2] = color;
+		quad[3] = region.getU();
+		quad[4] = region.getV2();
+		quad[5] = x;
+		quad[6] = y2;
+		quad[7] = color;
+		quad[8] = region.getU();
+		quad[9] = region.getV();
+		quad[10] = x2;
+		quad[11] = y2;
+		quad[12] = color;
+		quad[13] = region.getU2();
+		quad[14] = region.getV();
+		quad[15] = x2;
+		quad[16] = y;
+		quad[17] = color;
+		quad[18] = region.getU2();
+		quad[19] = region.getV2();
+		System.arraycopy(quad, 0, vertices, 0, quad.length);
+	}
+
+	/**
+	 * Returns the particle definitions of this scene, one per texture.
+	 *
+	 * @return
+	 */
+	public ParticleDef[] getParticleDefs() {
+		return particleDefs;
+	}
+
+	private ParticleDef createParticleDef(Texture texture, Random rnd) {
+		ParticleEmitter emitter = new ParticleEmitter();
+		emitter.setMaxParticleCount(50);
+		emitter.setSprite(new Sprite(texture, 0, 0, 8, 8));
+		emitter.setContinuous(true);
+		emitter.getEmission().setHigh(100);
+		emitter.getLife().setHigh(500);
+		emitter.getDuration().setLow(1000);
+
+		ParticleEffect effect = new ParticleEffect();
+		effect.getEmitters().add(emitter);
+		ParticleEffectPool effectPool = new ParticleEffectPool(effect, 1, 1);
+		ParticleEffectPool.PooledEffect pooledEffect = effectPool.obtain();
+		pooledEffect.start();
+
+		float x = rnd.nextFloat() * WORLD_SIZE;
+		float y = rnd.nextFloat() * WORLD_SIZE;
+		return new ParticleDef(ItemType.PARTICLE, pooledEffect, x, y, PARTICLE_UPDATE_INTERVAL);
+	}
+
+	private static final int REGIONS_PER_TEXTURE = 4;
+	private static final float WORLD_SIZE = 2048;
+	private static final long PARTICLE_UPDATE_INTERVAL = 16000000l;
+
+	private final int itemCount;
+	private final int layerCount;
+	private final Texture[] textures;
+	private final TextureRegion[] regions;
+	private final NinePatch[] ninePatches;
+	private final ParticleDef[] particleDefs;
+
+	private final ItemType[] types;
+	private final int[] layers;
+	private final int[] regionIndices;
+	private final float[] xs;
+	private final float[] ys;
+	private final float[] quad;
+
+	private int textureType;
+	private int ninePatchType;
+	private int particleType;
+	private int verticeType;
+	private boolean depthSorted;
+}
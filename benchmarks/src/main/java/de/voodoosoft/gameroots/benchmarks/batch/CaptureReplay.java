@@ -0,0 +1,214 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderQueue;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderStats;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.RenderCapture;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortKey;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.DefaultBlendMode;
+
+import java.io.File;
+import java.io.IOException;
+
+
+
+/**
+ * Replays frames recorded by a {@link RenderCapture} headless against the counting GL stand-in.
+ * <p/>
+ * Captured items are replaced by stand-in items drawing a sprite with the captured layer, sort key and bounds.
+ * Each captured texture id is mapped to a texture of its own, so texture and blend switches match the captured frames.
+ * <p/>
+ * Usage: <code>CaptureReplay file [sortMode] [rounds]</code>
+ */
+public class CaptureReplay {
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("usage: CaptureReplay file [COMPARATOR|RADIX|ADAPTIVE] [rounds]");
+			System.exit(1);
+		}
+
+		RenderCapture capture = RenderCapture.load(new File(args[0]));
+		SortMode sortMode = args.length > 1 ? SortMode.valueOf(args[1]) : SortMode.RADIX;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		new CaptureReplay(capture, sortMode).run(rounds);
+		System.exit(0);
+	}
+
+	public CaptureReplay(RenderCapture capture, SortMode sortMode) {
+		this.capture = capture;
+		gl = HeadlessGdx.init();
+		queue = new BatchRenderQueue(SortKey.MAX_LAYERS);
+		queue.setSortMode(sortMode);
+		queue.setStatsEnabled(true, Math.max(capture.getFrameCount(), 1));
+		replayType = queue.addItemClass(ReplayItem.class, new Pool<BatchRenderItem>() {
+			@Override
+			protected BatchRenderItem newObject() {
+				return new ReplayItem();
+			}
+		});
+		batch = new SpriteBatch();
+		regions = new IntMap<TextureRegion>();
+		bounds = new Rectangle();
+	}
+
+	/**
+	 * Replays all captured frames the given number of times and prints the mean costs per frame of the last round.
+	 *
+	 * @param rounds number of rounds, all but the last one are warm up
+	 */
+	public void run(int rounds) {
+		int frameCount = capture.getFrameCount();
+		if (frameCount == 0) {
+			System.out.println("no frames captured");
+			return;
+		}
+
+		long queueTime = 0;
+		long frameTime = 0;
+		for (int round = 0; round < rounds; round++) {
+			gl.resetCounters();
+			queueTime = 0;
+			frameTime = 0;
+			for (int f = 0; f < frameCount; f++) {
+				long start = System.nanoTime();
+				queueFrame(f);
+				long queued = System.nanoTime();
+				batch.begin();
+				queue.render(batch, 0);
+				batch.end();
+				queue.reset();
+				long end = System.nanoTime();
+				queueTime += queued - start;
+				frameTime += end - start;
+			}
+		}
+
+		BatchRenderStats stats = queue.getStats();
+		System.out.println("frames:           " + frameCount);
+		System.out.println("items:            " + stats.getMeanItemCount());
+		System.out.println("queue us:         " + queueTime / frameCount / 1000f);
+		System.out.println("sort us:          " + stats.getMeanSortTime() / 1000f);
+		System.out.println("render us:        " + stats.getMeanRenderTime() / 1000f);
+		System.out.println("frame us:         " + frameTime / frameCount / 1000f);
+		System.out.println("draw calls:       " + (float)gl.drawCalls / frameCount);
+		System.out.println("texture binds:    " + (float)gl.textureBinds / frameCount);
+		System.out.println("blend changes:    " + (float)gl.blendFunctionChanges / frameCount);
+		System.out.println("texture switches: " + stats.getMeanTextureSwitches());
+	}
+
+	private void queueFrame(int frame) {
+		int itemCount = capture.getItemCount(frame);
+		for (int i = 0; i < itemCount; i++) {
+			ReplayItem item = queue.obtainItem(replayType);
+			long key = capture.getSortKey(frame, i);
+			item.layer = capture.getLayer(frame, i);
+			item.sortKey = SortKey.withLayer(key, 0);
+			item.depth = capture.getDepth(frame, i);
+			item.region = getRegion(SortKey.getTexture(key));
+			int blend = SortKey.getBlend(key);
+			item.blendMode = blend < BLEND_MODES.length ? BLEND_MODES[blend] : DefaultBlendMode.DEFAULT;
+			if (capture.getBounds(frame, i, bounds)) {
+				item.x = bounds.x;
+				item.y = bounds.y;
+				item.width = bounds.width;
+				item.height = bounds.height;
+			}
+			else {
+				item.x = 0;
+				item.y = 0;
+				item.width = 16;
+				item.height = 16;
+			}
+			queue.queueItem(item);
+		}
+	}
+
+	private TextureRegion getRegion(int textureId) {
+		TextureRegion region = regions.get(textureId);
+		if (region == null) {
+			Texture texture = HeadlessGdx.createTexture(16, 16);
+			region = new TextureRegion(texture);
+			regions.put(textureId, region);
+		}
+		return region;
+	}
+
+	/**
+	 * Stand-in for a captured item.
+	 */
+	static class ReplayItem implements BatchRenderItem {
+		@Override
+		public int getLayer() {
+			return layer;
+		}
+
+		@Override
+		public int getTypeId() {
+			return typeId;
+		}
+
+		@Override
+		public void setTypeId(int typeId) {
+			this.typeId = typeId;
+		}
+
+		@Override
+		public float getDepth() {
+			return depth;
+		}
+
+		@Override
+		public long getSortKey() {
+			return sortKey;
+		}
+
+		@Override
+		public void render(BatchRenderState state, long time) {
+			if (blendMode.getSrcFunction() != 0 || blendMode.getDestFunction() != 0) {
+				state.enableBlending(blendMode.getSrcFunction(), blendMode.getDestFunction());
+			}
+			else {
+				state.disableBlending();
+			}
+			state.getBatch().draw(region, x, y, width, height);
+		}
+
+		@Override
+		public void render(SpriteBatch batch, long time) {
+			batch.draw(region, x, y, width, height);
+		}
+
+		@Override
+		public int compareTo(BatchRenderItem other) {
+			ReplayItem o = (ReplayItem)other;
+			int result = Float.compare(depth, o.depth);
+			return result != 0 ? result : Long.compareUnsigned(sortKey, o.sortKey);
+		}
+
+		int typeId = -1;
+		int layer;
+		long sortKey;
+		float depth;
+		DefaultBlendMode blendMode;
+		TextureRegion region;
+		float x, y, width, height;
+	}
+
+	private static final DefaultBlendMode[] BLEND_MODES = DefaultBlendMode.values();
+
+	private final RenderCapture capture;
+	private final HeadlessGL20 gl;
+	private final BatchRenderQueue queue;
+	private final int replayType;
+	private final SpriteBatch batch;
+	private final IntMap<TextureRegion> regions;
+	private final Rectangle bounds;
+}
@@ -0,0 +1,77 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderQueue;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures frames of a y-sorted scene whose items move a little each frame, like characters of a top-down game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthSortBenchmark {
+	@Param({"5000", "20000"})
+	public int items;
+
+	@Param({"false", "true"})
+	public boolean depthSorted;
+
+	@Param({"COMPARATOR", "RADIX", "ADAPTIVE"})
+	public SortMode sortMode;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		HeadlessGdx.init();
+		scene = new BatchScene(BatchScene.Mix.SPRITES, items, 1, 16, SEED);
+		scene.setDepthSorted(depthSorted);
+		queue = scene.createQueue(sortMode);
+		batch = new SpriteBatch();
+		rnd = new Random(SEED);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		batch.dispose();
+		scene.dispose();
+	}
+
+	@Benchmark
+	public int movingFrame() {
+		scene.moveItems(rnd, 2);
+		scene.queueFrame(queue);
+		batch.begin();
+		queue.render(batch, 0);
+		batch.end();
+		queue.reset();
+		return batch.renderCalls;
+	}
+
+	private static final long SEED = 4711;
+
+	private BatchScene scene;
+	private BatchRenderQueue queue;
+	private SpriteBatch batch;
+	private Random rnd;
+}
@@ -0,0 +1,49 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+
+
+
+/**
+ * Sets up LibGdx for running without display and GPU.
+ */
+public final class HeadlessGdx {
+	/**
+	 * Starts a headless application once and installs the GL stand-in.
+	 *
+	 * @return GL stand-in counting GL calls
+	 */
+	public static synchronized HeadlessGL20 init() {
+		if (gl == null) {
+			new HeadlessApplication(new ApplicationAdapter() {
+			});
+			gl = new HeadlessGL20();
+			Gdx.gl = gl;
+			Gdx.gl20 = gl;
+		}
+		return gl;
+	}
+
+	/**
+	 * Creates a texture with a unique texture handle.
+	 *
+	 * @param width texture width
+	 * @param height texture height
+	 * @return
+	 */
+	public static Texture createTexture(int width, int height) {
+		Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+		Texture texture = new Texture(pixmap);
+		pixmap.dispose();
+		return texture;
+	}
+
+	private HeadlessGdx() {
+	}
+
+	private static HeadlessGL20 gl;
+}
@@ -0,0 +1,139 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEmitter;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderState;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Compares libGDX particle effects with data oriented particle systems importing the same emitter definition.
+ * <p/>
+ * Each frame advances all effects by 1/60 s and draws them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleSystemBenchmark {
+	@Param({"20", "100"})
+	public int effects;
+
+	@Param({"false", "true"})
+	public boolean dataOriented;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		HeadlessGdx.init();
+		texture = HeadlessGdx.createTexture(16, 16);
+		batch = new SpriteBatch();
+		state = new BatchRenderState();
+
+		ParticleEffect template = createTemplate(texture);
+		gdxEffects = new ParticleEffect[effects];
+		systems = new ParticleSystem[effects];
+		for (int i = 0; i < effects; i++) {
+			float x = (i % 10) * 100;
+			float y = (i / 10) * 100;
+			if (dataOriented) {
+				systems[i] = new ParticleSystem(template);
+				systems[i].setPosition(x, y);
+				systems[i].start();
+			}
+			else {
+				gdxEffects[i] = new ParticleEffect(template);
+				gdxEffects[i].setPosition(x, y);
+				gdxEffects[i].start();
+			}
+		}
+
+		// fill up to the steady particle count
+		for (int frame = 0; frame < 120; frame++) {
+			frame();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		batch.dispose();
+		texture.dispose();
+	}
+
+	@Benchmark
+	public int frame() {
+		batch.begin();
+		if (dataOriented) {
+			state.begin(batch);
+			for (ParticleSystem system : systems) {
+				system.update(FRAME_SECS);
+				system.draw(state);
+			}
+		}
+		else {
+			for (ParticleEffect effect : gdxEffects) {
+				effect.draw(batch, FRAME_SECS);
+			}
+		}
+		batch.end();
+		return batch.renderCalls;
+	}
+
+	private static ParticleEffect createTemplate(Texture texture) {
+		ParticleEmitter emitter = new ParticleEmitter();
+		emitter.setMaxParticleCount(300);
+		emitter.setSprite(new Sprite(texture, 0, 0, 16, 16));
+		emitter.setContinuous(true);
+		emitter.getDuration().setLow(1000);
+		emitter.getEmission().setHigh(250);
+		emitter.getLife().setHigh(1000);
+		emitter.getVelocity().setActive(true);
+		emitter.getVelocity().setHigh(40, 80);
+		emitter.getAngle().setActive(true);
+		emitter.getAngle().setHigh(0, 360);
+		emitter.getScale().setHigh(8, 16);
+		emitter.getScale().setScaling(new float[] {1, 0.25f});
+		emitter.getScale().setTimeline(new float[] {0, 1});
+		emitter.getRotation().setActive(true);
+		emitter.getRotation().setHigh(0, 180);
+		emitter.getRotation().setScaling(new float[] {0, 1});
+		emitter.getRotation().setTimeline(new float[] {0, 1});
+		emitter.getGravity().setActive(true);
+		emitter.getGravity().setHigh(-20);
+		emitter.getTransparency().setHigh(1);
+		emitter.getTransparency().setScaling(new float[] {1, 0});
+		emitter.getTransparency().setTimeline(new float[] {0, 1});
+
+		ParticleEffect effect = new ParticleEffect();
+		effect.getEmitters().add(emitter);
+		return effect;
+	}
+
+	private static final float FRAME_SECS = 1 / 60f;
+
+	private Texture texture;
+	private SpriteBatch batch;
+	private BatchRenderState state;
+	private ParticleEffect[] gdxEffects;
+	private ParticleSystem[] systems;
+}
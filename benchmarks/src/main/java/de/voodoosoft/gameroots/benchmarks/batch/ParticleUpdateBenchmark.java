@@ -0,0 +1,94 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderQueue;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleDef;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.impl.ParticleUpdateStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Compares advancing particle effects while drawing with advancing them by a parallel update stage ahead of drawing.
+ * <p/>
+ * <code>frame</code> measures update and drawing together, <code>renderOnly</code> only the work left to the render thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleUpdateBenchmark {
+	@Param({"100", "500"})
+	public int effects;
+
+	@Param({"false", "true"})
+	public boolean staged;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		HeadlessGdx.init();
+		scene = new BatchScene(BatchScene.Mix.PARTICLES, effects, 1, effects, SEED);
+		queue = scene.createQueue(SortMode.RADIX);
+		batch = new SpriteBatch();
+		stage = new ParticleUpdateStage();
+		if (staged) {
+			for (ParticleDef particleDef : scene.getParticleDefs()) {
+				stage.add(particleDef);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		batch.dispose();
+		scene.dispose();
+	}
+
+	@Benchmark
+	public int frame() {
+		time += FRAME_TIME;
+		stage.update(time);
+		return render();
+	}
+
+	@Benchmark
+	public int renderOnly() {
+		time += FRAME_TIME;
+		return render();
+	}
+
+	private int render() {
+		scene.queueFrame(queue);
+		batch.begin();
+		queue.render(batch, time);
+		batch.end();
+		queue.reset();
+		return batch.renderCalls;
+	}
+
+	private static final long SEED = 4711;
+	private static final long FRAME_TIME = 16666667L;
+
+	private BatchScene scene;
+	private BatchRenderQueue queue;
+	private SpriteBatch batch;
+	private ParticleUpdateStage stage;
+	private long time;
+}
@@ -0,0 +1,113 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.utils.Sort;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderItem;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.CoherentSort;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.RadixSort;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortKey;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Measures sorting a single layer the way the render queue does for each sort mode.
+ * <p/>
+ * Each invocation sorts a fresh copy of the same unsorted items, <code>copy</code> measures the copying alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+	@Param({"SPRITES", "MIXED"})
+	public BatchScene.Mix mix;
+
+	@Param({"1000", "20000"})
+	public int items;
+
+	@Param({"4", "64"})
+	public int textures;
+
+	@Param({"COMPARATOR", "RADIX", "ADAPTIVE"})
+	public SortMode sortMode;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		HeadlessGdx.init();
+		scene = new BatchScene(mix, items, 1, textures, SEED);
+		unsortedItems = scene.createItems();
+		unsortedKeys = new long[items];
+		for (int i = 0; i < items; i++) {
+			unsortedKeys[i] = SortKey.withLayer(unsortedItems[i].getSortKey(), 0);
+		}
+
+		sortItems = new BatchRenderItem[items];
+		sortKeys = new long[items];
+		order = new int[items];
+		sort = new Sort();
+		radixSort = new RadixSort();
+		coherentSort = new CoherentSort(radixSort);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		scene.dispose();
+	}
+
+	@Benchmark
+	public Object copy() {
+		System.arraycopy(unsortedItems, 0, sortItems, 0, items);
+		System.arraycopy(unsortedKeys, 0, sortKeys, 0, items);
+		return sortItems[0];
+	}
+
+	@Benchmark
+	public Object sort() {
+		System.arraycopy(unsortedItems, 0, sortItems, 0, items);
+		System.arraycopy(unsortedKeys, 0, sortKeys, 0, items);
+		switch (sortMode) {
+			case COMPARATOR:
+				sort.sort(sortItems, 0, items);
+				break;
+			case RADIX:
+				radixSort.sort(sortKeys, sortItems, items);
+				break;
+			case ADAPTIVE:
+				coherentSort.sort(sortKeys, sortItems, items, order, lastCount);
+				lastCount = items;
+				break;
+		}
+		return sortItems[0];
+	}
+
+	private static final long SEED = 4711;
+
+	private BatchScene scene;
+	private BatchRenderItem[] unsortedItems;
+	private long[] unsortedKeys;
+	private BatchRenderItem[] sortItems;
+	private long[] sortKeys;
+	private int[] order;
+	private int lastCount;
+
+	private Sort sort;
+	private RadixSort radixSort;
+	private CoherentSort coherentSort;
+}
@@ -0,0 +1,88 @@
+package de.voodoosoft.gameroots.benchmarks.batch;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.BatchRenderQueue;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SortMode;
+import de.voodoosoft.gameroots.frontend.gdx.view.render.batch.SpriteStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Compares rendering plain sprites as texture batch items against rendering them through a sprite stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteStreamBenchmark {
+	@Param({"20000", "100000"})
+	public int items;
+
+	@Param({"1", "64"})
+	public int layers;
+
+	@Param({"4", "64"})
+	public int textures;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		HeadlessGdx.init();
+		scene = new BatchScene(BatchScene.Mix.SPRITES, items, layers, textures, SEED);
+		itemQueue = scene.createQueue(SortMode.RADIX);
+		streamQueue = new BatchRenderQueue(layers);
+		stream = scene.createStream();
+		streamQueue.addSpriteStream(stream);
+		batch = new SpriteBatch();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		batch.dispose();
+		scene.dispose();
+	}
+
+	@Benchmark
+	public int items() {
+		scene.queueFrame(itemQueue);
+		return render(itemQueue);
+	}
+
+	@Benchmark
+	public int stream() {
+		scene.queueFrame(stream);
+		return render(streamQueue);
+	}
+
+	private int render(BatchRenderQueue queue) {
+		batch.begin();
+		queue.render(batch, 0);
+		batch.end();
+		queue.reset();
+		return batch.renderCalls;
+	}
+
+	private static final long SEED = 4711;
+
+	private BatchScene scene;
+	private BatchRenderQueue itemQueue;
+	private BatchRenderQueue streamQueue;
+	private SpriteStream stream;
+	private SpriteBatch batch;
+}